@@ -0,0 +1,70 @@
+package com.example.demo.threads;
+
+// Picks the next sampling delay from the latest value of a metric: drop to the
+// minimum while over the threshold, halve on a large relative change, and back
+// off by 1.5x towards the maximum while the value is stable.
+class AdaptiveInterval {
+    private final long initialMillis;
+    private final long minMillis;
+    private final long maxMillis;
+    private final double threshold;
+    private final double changeRatio;
+    private long currentMillis;
+    private double lastValue = Double.NaN;
+
+    AdaptiveInterval(long initialMillis, long minMillis, long maxMillis, double threshold, double changeRatio) {
+        if (minMillis <= 0 || minMillis > initialMillis || initialMillis > maxMillis) {
+            throw new IllegalArgumentException("Require 0 < min <= initial <= max");
+        }
+        this.initialMillis = initialMillis;
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+        this.threshold = threshold;
+        this.changeRatio = changeRatio;
+        this.currentMillis = initialMillis;
+    }
+
+    // For metrics without an alert level; only volatility drives the rate
+    static AdaptiveInterval volatilityOnly(long initialMillis, long minMillis, long maxMillis, double changeRatio) {
+        return new AdaptiveInterval(initialMillis, minMillis, maxMillis, Double.NaN, changeRatio);
+    }
+
+    synchronized void reset() {
+        currentMillis = initialMillis;
+        lastValue = Double.NaN;
+    }
+
+    synchronized long next(double value) {
+        if (Double.isNaN(value)) {
+            return currentMillis;
+        }
+
+        boolean overThreshold = !Double.isNaN(threshold) && value >= threshold;
+        // Changes are measured against the threshold scale so noise near zero is not "volatile"
+        double scale = Double.isNaN(threshold) ? Math.abs(lastValue) : Math.max(Math.abs(lastValue), threshold);
+        boolean changing = !Double.isNaN(lastValue)
+                && Math.abs(value - lastValue) > changeRatio * Math.max(scale, 1.0);
+        lastValue = value;
+
+        if (overThreshold) {
+            currentMillis = minMillis;
+        } else if (changing) {
+            currentMillis = Math.max(minMillis, currentMillis / 2);
+        } else {
+            currentMillis = Math.min(maxMillis, currentMillis + currentMillis / 2);
+        }
+        return currentMillis;
+    }
+
+    long initialMillis() {
+        return initialMillis;
+    }
+
+    long minMillis() {
+        return minMillis;
+    }
+
+    long maxMillis() {
+        return maxMillis;
+    }
+}
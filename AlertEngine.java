@@ -0,0 +1,342 @@
+package com.example.demo.threads;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Threshold rules evaluated as each sample is recorded. A rule fires once its
+// value has stayed above fireAbove for forMillis and resolves only when it drops
+// to clearBelow or lower, so a metric hovering at the limit does not flap. Only
+// state transitions are sent to the sinks, which are individually rate limited.
+class AlertEngine implements MetricHistory.Listener {
+    enum Mode { VALUE, RATE }
+
+    static final class Rule {
+        final String name;
+        final String metricKey;
+        final Mode mode;
+        final double fireAbove;
+        final double clearBelow;
+        final long forMillis;
+        private long breachSince = -1;
+        private boolean firing;
+        private double lastRaw = Double.NaN;
+        private long lastTimestamp;
+        private double lastValue = Double.NaN;
+
+        Rule(String name, String metricKey, Mode mode, double fireAbove, double clearBelow, long forMillis) {
+            if (clearBelow > fireAbove) {
+                throw new IllegalArgumentException(name + ": clear level must not exceed fire level");
+            }
+            this.name = name;
+            this.metricKey = metricKey;
+            this.mode = mode;
+            this.fireAbove = fireAbove;
+            this.clearBelow = clearBelow;
+            this.forMillis = forMillis;
+        }
+
+        synchronized boolean isFiring() {
+            return firing;
+        }
+
+        synchronized double lastValue() {
+            return lastValue;
+        }
+
+        @Override
+        public String toString() {
+            String metric = mode == Mode.RATE ? "rate(" + metricKey + ")" : metricKey;
+            return String.format("%s = %s > %s clear %s for %ds", name, metric,
+                    fireAbove, clearBelow, forMillis / 1000);
+        }
+
+        // Returns the transition caused by this sample, or null if the state is unchanged
+        private synchronized Alert evaluate(long timestamp, double raw) {
+            double value = raw;
+            if (mode == Mode.RATE) {
+                double previous = lastRaw;
+                long previousTimestamp = lastTimestamp;
+                lastRaw = raw;
+                lastTimestamp = timestamp;
+                if (Double.isNaN(previous) || timestamp <= previousTimestamp) {
+                    return null;
+                }
+                value = (raw - previous) * 1000.0 / (timestamp - previousTimestamp);
+            }
+            lastValue = value;
+
+            if (!firing) {
+                if (value <= fireAbove) {
+                    breachSince = -1;
+                    return null;
+                }
+                if (breachSince < 0) {
+                    breachSince = timestamp;
+                }
+                if (timestamp - breachSince >= forMillis) {
+                    firing = true;
+                    return new Alert(this, true, value, timestamp);
+                }
+            } else if (value <= clearBelow) {
+                // <= so that a clear level of 0 resolves on a flat rate
+                firing = false;
+                breachSince = -1;
+                return new Alert(this, false, value, timestamp);
+            }
+            return null;
+        }
+    }
+
+    static final class Alert {
+        final Rule rule;
+        final boolean firing;
+        final double value;
+        final long timestamp;
+
+        Alert(Rule rule, boolean firing, double value, long timestamp) {
+            this.rule = rule;
+            this.firing = firing;
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s] %s %s (value %.2f, fire > %s, clear <= %s)",
+                    new Date(timestamp), firing ? "FIRING" : "RESOLVED",
+                    rule.name, value, rule.fireAbove, rule.clearBelow);
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"rule\":\"%s\",\"metric\":\"%s\",\"state\":\"%s\",\"value\":%.4f,\"timestamp\":%d}",
+                    rule.name, rule.metricKey.replace("\"", "\\\""), firing ? "firing" : "resolved",
+                    value, timestamp);
+        }
+    }
+
+    interface AlertSink {
+        void send(Alert alert);
+    }
+
+    // Drops notifications beyond maxPerWindow in any window; counts what it dropped. A RESOLVED
+    // always goes through when its FIRING was delivered, so a receiver is never left with an
+    // alert that looks open forever; one whose FIRING was dropped is dropped with it.
+    static final class RateLimitedSink implements AlertSink {
+        private final AlertSink delegate;
+        private final Set<Rule> delivered = new HashSet<>();
+        private final int maxPerWindow;
+        private final long windowMillis;
+        private long windowStart;
+        private int sentInWindow;
+        private long suppressed;
+
+        RateLimitedSink(AlertSink delegate, int maxPerWindow, long windowMillis) {
+            this.delegate = delegate;
+            this.maxPerWindow = maxPerWindow;
+            this.windowMillis = windowMillis;
+        }
+
+        @Override
+        public synchronized void send(Alert alert) {
+            if (!alert.firing) {
+                if (delivered.remove(alert.rule)) {
+                    delegate.send(alert);
+                } else {
+                    suppressed++;
+                }
+                return;
+            }
+            if (alert.timestamp - windowStart >= windowMillis) {
+                windowStart = alert.timestamp;
+                sentInWindow = 0;
+            }
+            if (sentInWindow >= maxPerWindow) {
+                suppressed++;
+                return;
+            }
+            sentInWindow++;
+            delivered.add(alert.rule);
+            delegate.send(alert);
+        }
+
+        synchronized long suppressed() {
+            return suppressed;
+        }
+    }
+
+    static final class StdoutSink implements AlertSink {
+        private volatile AlertSink divert;
+
+        // While a full-screen view owns the terminal, hand alerts to it instead of printing over it
+        void divertTo(AlertSink target) {
+            divert = target;
+        }
+
+        @Override
+        public void send(Alert alert) {
+            AlertSink target = divert;
+            if (target != null) {
+                target.send(alert);
+                return;
+            }
+            System.out.println((alert.firing ? "🚨 " : "✅ ") + alert);
+        }
+    }
+
+    static final class FileSink implements AlertSink {
+        private final Path path;
+
+        FileSink(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public synchronized void send(Alert alert) {
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(alert.toString());
+                writer.newLine();
+            } catch (IOException e) {
+                System.err.println("Error writing alert log: " + e.getMessage());
+            }
+        }
+    }
+
+    // Posts JSON to a (local) webhook on its own thread so a slow receiver cannot stall collectors
+    static final class WebhookSink implements AlertSink {
+        private final URL url;
+        private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-webhook");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        WebhookSink(URL url) {
+            this.url = url;
+        }
+
+        @Override
+        public void send(Alert alert) {
+            String json = alert.toJson();
+            sender.execute(() -> post(json));
+        }
+
+        private void post(String json) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                connection.setRequestMethod("POST");
+                connection.setConnectTimeout(2000);
+                connection.setReadTimeout(2000);
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(json.getBytes(StandardCharsets.UTF_8));
+                }
+                int status = connection.getResponseCode();
+                if (status >= 300) {
+                    System.err.println("Alert webhook returned HTTP " + status);
+                }
+                connection.disconnect();
+            } catch (IOException e) {
+                System.err.println("Error posting alert webhook: " + e.getMessage());
+            }
+        }
+    }
+
+    private final Map<String, List<Rule>> rulesByMetric = new ConcurrentHashMap<>();
+    private final List<Rule> rules = new CopyOnWriteArrayList<>();
+    private final List<AlertSink> sinks = new CopyOnWriteArrayList<>();
+
+    void addRule(Rule rule) {
+        rules.add(rule);
+        rulesByMetric.computeIfAbsent(rule.metricKey, k -> new CopyOnWriteArrayList<>()).add(rule);
+    }
+
+    void addSink(AlertSink sink) {
+        sinks.add(sink);
+    }
+
+    List<Rule> rules() {
+        return Collections.unmodifiableList(rules);
+    }
+
+    @Override
+    public void onSample(MetricHistory.Series series, long timestamp, double value) {
+        List<Rule> matching = rulesByMetric.get(series.key());
+        if (matching == null) {
+            return;
+        }
+        for (Rule rule : matching) {
+            Alert alert = rule.evaluate(timestamp, value);
+            if (alert != null) {
+                for (AlertSink sink : sinks) {
+                    sink.send(alert);
+                }
+            }
+        }
+    }
+
+    // Rule syntax: name = [rate(]metric[)] > fire [clear level] [for 30s|5m]
+    static Rule parseRule(String line) {
+        String[] sides = line.split("=", 2);
+        if (sides.length != 2) {
+            throw new IllegalArgumentException("Expected 'name = expression': " + line);
+        }
+        String name = sides[0].trim();
+        String[] tokens = sides[1].trim().split("\\s+");
+        if (tokens.length < 3 || !tokens[1].equals(">")) {
+            throw new IllegalArgumentException("Expected 'metric > value': " + line);
+        }
+
+        String metric = tokens[0];
+        Mode mode = Mode.VALUE;
+        if (metric.startsWith("rate(") && metric.endsWith(")")) {
+            mode = Mode.RATE;
+            metric = metric.substring(5, metric.length() - 1);
+        }
+        double fire = Double.parseDouble(tokens[2]);
+        double clear = fire;
+        long forMillis = 0;
+        for (int i = 3; i + 1 < tokens.length; i += 2) {
+            if (tokens[i].equals("clear")) {
+                clear = Double.parseDouble(tokens[i + 1]);
+            } else if (tokens[i].equals("for")) {
+                forMillis = parseDuration(tokens[i + 1]);
+            } else {
+                throw new IllegalArgumentException("Unknown keyword '" + tokens[i] + "': " + line);
+            }
+        }
+        return new Rule(name, metric, mode, fire, clear, forMillis);
+    }
+
+    static List<Rule> loadRules(Path file) throws IOException {
+        List<Rule> loaded = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                loaded.add(parseRule(trimmed));
+            }
+        }
+        return loaded;
+    }
+
+    private static long parseDuration(String text) {
+        long amount = Long.parseLong(text.substring(0, text.length() - 1));
+        switch (text.charAt(text.length() - 1)) {
+            case 's':
+                return amount * 1000;
+            case 'm':
+                return amount * 60_000;
+            case 'h':
+                return amount * 3_600_000;
+            default:
+                throw new IllegalArgumentException("Duration must end in s, m or h: " + text);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.Arrays;
+
+// Uncompressed bitset over product ordinals. Catalogue ids are dense, so a plain
+// long[] beats a compressed format here: AND/OR are straight word loops and a
+// facet count is a popcount over the intersection without materialising it.
+public class Bitmap {
+    private long[] words;
+
+    public Bitmap() {
+        this(64);
+    }
+
+    public Bitmap(int capacity) {
+        words = new long[Math.max(1, (capacity + 63) >>> 6)];
+    }
+
+    private Bitmap(long[] words) {
+        this.words = words;
+    }
+
+    // Bitmap of a sorted or unsorted id list, e.g. the postings of a name query
+    public static Bitmap of(int[] ids) {
+        Bitmap bitmap = new Bitmap(ids.length == 0 ? 64 : ids[ids.length - 1] + 1);
+        for (int id : ids) {
+            bitmap.set(id);
+        }
+        return bitmap;
+    }
+
+    // Bits [0, count) set
+    public static Bitmap range(int count) {
+        Bitmap bitmap = new Bitmap(count);
+        int full = count >>> 6;
+        Arrays.fill(bitmap.words, 0, full, -1L);
+        if ((count & 63) != 0) {
+            bitmap.words[full] = (1L << (count & 63)) - 1;
+        }
+        return bitmap;
+    }
+
+    public void set(int id) {
+        int word = id >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(words.length * 2, word + 1));
+        }
+        words[word] |= 1L << id;
+    }
+
+    public void clear(int id) {
+        int word = id >>> 6;
+        if (word < words.length) {
+            words[word] &= ~(1L << id);
+        }
+    }
+
+    public boolean get(int id) {
+        int word = id >>> 6;
+        return word < words.length && (words[word] & (1L << id)) != 0;
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Bitmap and(Bitmap other) {
+        int length = Math.min(words.length, other.words.length);
+        long[] result = new long[Math.max(1, length)];
+        for (int i = 0; i < length; i++) {
+            result[i] = words[i] & other.words[i];
+        }
+        return new Bitmap(result);
+    }
+
+    public Bitmap or(Bitmap other) {
+        long[] longer = words.length >= other.words.length ? words : other.words;
+        long[] shorter = longer == words ? other.words : words;
+        long[] result = longer.clone();
+        for (int i = 0; i < shorter.length; i++) {
+            result[i] |= shorter[i];
+        }
+        return new Bitmap(result);
+    }
+
+    public Bitmap andNot(Bitmap other) {
+        long[] result = words.clone();
+        int length = Math.min(words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            result[i] &= ~other.words[i];
+        }
+        return new Bitmap(result);
+    }
+
+    // In-place OR, for accumulating buckets without allocating per step
+    public void orInPlace(Bitmap other) {
+        if (other.words.length > words.length) {
+            words = Arrays.copyOf(words, other.words.length);
+        }
+        for (int i = 0; i < other.words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    // |this AND other| without building the intersection
+    public int andCardinality(Bitmap other) {
+        int length = Math.min(words.length, other.words.length);
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            count += Long.bitCount(words[i] & other.words[i]);
+        }
+        return count;
+    }
+
+    // Set ids in ascending order
+    public int[] toArray() {
+        int[] result = new int[cardinality()];
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                result[count++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    public long sizeInBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+}
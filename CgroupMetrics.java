@@ -0,0 +1,265 @@
+package com.example.demo.threads;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// CPU and memory accounting against the container's own cgroup limits
+// (v2 unified hierarchy, or v1 cpu/cpuacct/memory controllers), including
+// CFS throttling and pressure stall information.
+class CgroupMetrics {
+    private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+    // v1 reports "no limit" as a huge page-aligned number
+    private static final long V1_UNLIMITED = Long.MAX_VALUE / 2;
+
+    final boolean v2;
+    private final Path cpuDir;
+    private final Path cpuacctDir;
+    private final Path memoryDir;
+
+    // The figures from one sample(). Immutable, so readers on other threads always see a consistent set.
+    static final class Snapshot {
+        final double cpuLimitCores;
+        final double cpuUsageCores;
+        final double cpuThrottledPercent;
+        final double cpuThrottledMillisPerSec;
+        final long memoryUsed;
+        final long memoryLimit;
+        final double memoryPressureSome;
+        final double memoryPressureFull;
+        final double cpuPressureSome;
+
+        private Snapshot(double cpuLimitCores, double cpuUsageCores, double cpuThrottledPercent,
+                double cpuThrottledMillisPerSec, long memoryUsed, long memoryLimit, double memoryPressureSome,
+                double memoryPressureFull, double cpuPressureSome) {
+            this.cpuLimitCores = cpuLimitCores;
+            this.cpuUsageCores = cpuUsageCores;
+            this.cpuThrottledPercent = cpuThrottledPercent;
+            this.cpuThrottledMillisPerSec = cpuThrottledMillisPerSec;
+            this.memoryUsed = memoryUsed;
+            this.memoryLimit = memoryLimit;
+            this.memoryPressureSome = memoryPressureSome;
+            this.memoryPressureFull = memoryPressureFull;
+            this.cpuPressureSome = cpuPressureSome;
+        }
+
+        double cpuUsagePercentOfLimit() {
+            double limit = Double.isNaN(cpuLimitCores) ? Runtime.getRuntime().availableProcessors() : cpuLimitCores;
+            return cpuUsageCores * 100.0 / limit;
+        }
+
+        double memoryUsagePercentOfLimit() {
+            return memoryLimit > 0 ? memoryUsed * 100.0 / memoryLimit : Double.NaN;
+        }
+
+        void record(MetricHistory metrics) {
+            metrics.record("container_cpu_limit_cores", cpuLimitCores);
+            metrics.record("container_cpu_usage_cores", cpuUsageCores);
+            metrics.record("container_cpu_usage_percent_of_limit", cpuUsagePercentOfLimit());
+            metrics.record("container_cpu_throttled_periods_percent", cpuThrottledPercent);
+            metrics.record("container_cpu_throttled_millis_per_second", cpuThrottledMillisPerSec);
+            metrics.record("container_memory_used_bytes", memoryUsed);
+            metrics.record("container_memory_limit_bytes", memoryLimit);
+            metrics.record("container_memory_usage_percent_of_limit", memoryUsagePercentOfLimit());
+            metrics.record("container_memory_pressure_some_avg10", memoryPressureSome);
+            metrics.record("container_memory_pressure_full_avg10", memoryPressureFull);
+            metrics.record("container_cpu_pressure_some_avg10", cpuPressureSome);
+        }
+    }
+
+    private volatile Snapshot latest;
+
+    private long lastSampleNanos;
+    private long lastUsageMicros = -1;
+    private long lastPeriods;
+    private long lastThrottled;
+    private long lastThrottledMicros;
+
+    private CgroupMetrics(boolean v2, Path cpuDir, Path cpuacctDir, Path memoryDir) {
+        this.v2 = v2;
+        this.cpuDir = cpuDir;
+        this.cpuacctDir = cpuacctDir;
+        this.memoryDir = memoryDir;
+    }
+
+    // Returns null when the process is not in a readable cgroup (e.g. not on Linux)
+    static CgroupMetrics detect() {
+        Path selfCgroup = Paths.get("/proc/self/cgroup");
+        if (!Files.isReadable(selfCgroup)) {
+            return null;
+        }
+        try {
+            Map<String, String> paths = new HashMap<>();
+            for (String line : Files.readAllLines(selfCgroup, StandardCharsets.UTF_8)) {
+                // hierarchy-id:controller-list:path
+                String[] parts = line.split(":", 3);
+                if (parts.length == 3) {
+                    for (String controller : parts[1].split(",")) {
+                        paths.put(controller, parts[2]);
+                    }
+                }
+            }
+
+            if (Files.exists(CGROUP_ROOT.resolve("cgroup.controllers"))) {
+                Path dir = resolve(CGROUP_ROOT, paths.getOrDefault("", "/"), "cpu.max");
+                return new CgroupMetrics(true, dir, dir, dir);
+            }
+
+            Path cpu = resolveV1(paths, "cpu", "cpu.cfs_quota_us");
+            Path cpuacct = resolveV1(paths, "cpuacct", "cpuacct.usage");
+            Path memory = resolveV1(paths, "memory", "memory.usage_in_bytes");
+            if (cpu == null && memory == null) {
+                return null;
+            }
+            return new CgroupMetrics(false, cpu, cpuacct, memory);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Path resolveV1(Map<String, String> paths, String controller, String probeFile) {
+        String path = paths.get(controller);
+        if (path == null) {
+            return null;
+        }
+        for (String mount : new String[] { controller, "cpu,cpuacct", "cpuacct,cpu" }) {
+            Path base = CGROUP_ROOT.resolve(mount);
+            if (Files.isDirectory(base)) {
+                Path dir = resolve(base, path, probeFile);
+                if (Files.exists(dir.resolve(probeFile))) {
+                    return dir;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Inside a container the cgroup namespace usually mounts our own group at the root
+    private static Path resolve(Path base, String cgroupPath, String probeFile) {
+        Path nested = base.resolve(cgroupPath.startsWith("/") ? cgroupPath.substring(1) : cgroupPath);
+        return Files.exists(nested.resolve(probeFile)) ? nested : base;
+    }
+
+    // Null until the first sample()
+    Snapshot latest() {
+        return latest;
+    }
+
+    // Rates are deltas since the previous call, so exactly one periodic task should call this
+    synchronized Snapshot sample() throws IOException {
+        long now = System.nanoTime();
+        double elapsedMicros = lastSampleNanos == 0 ? 0 : (now - lastSampleNanos) / 1000.0;
+        lastSampleNanos = now;
+
+        double cpuLimitCores = Double.NaN;
+        long memoryUsed = 0;
+        long memoryLimit = -1;
+        double memoryPressureSome;
+        double memoryPressureFull;
+        double cpuPressureSome;
+        long usageMicros;
+        long periods;
+        long throttled;
+        long throttledMicros;
+        if (v2) {
+            String[] max = readString(cpuDir.resolve("cpu.max")).split("\\s+");
+            cpuLimitCores = max[0].equals("max") ? Double.NaN : Double.parseDouble(max[0]) / Double.parseDouble(max[1]);
+            Map<String, Long> stat = readKeyValues(cpuDir.resolve("cpu.stat"));
+            usageMicros = stat.getOrDefault("usage_usec", 0L);
+            periods = stat.getOrDefault("nr_periods", 0L);
+            throttled = stat.getOrDefault("nr_throttled", 0L);
+            throttledMicros = stat.getOrDefault("throttled_usec", 0L);
+
+            memoryUsed = readLong(memoryDir.resolve("memory.current"));
+            String limit = readString(memoryDir.resolve("memory.max"));
+            memoryLimit = limit.equals("max") ? -1 : Long.parseLong(limit);
+            memoryPressureSome = readPressure(memoryDir.resolve("memory.pressure"), "some");
+            memoryPressureFull = readPressure(memoryDir.resolve("memory.pressure"), "full");
+            cpuPressureSome = readPressure(cpuDir.resolve("cpu.pressure"), "some");
+        } else {
+            usageMicros = cpuacctDir == null ? 0 : readLong(cpuacctDir.resolve("cpuacct.usage")) / 1000;
+            periods = 0;
+            throttled = 0;
+            throttledMicros = 0;
+            if (cpuDir != null) {
+                long quota = readLong(cpuDir.resolve("cpu.cfs_quota_us"));
+                long period = readLong(cpuDir.resolve("cpu.cfs_period_us"));
+                cpuLimitCores = quota <= 0 || period <= 0 ? Double.NaN : (double) quota / period;
+                Map<String, Long> stat = readKeyValues(cpuDir.resolve("cpu.stat"));
+                periods = stat.getOrDefault("nr_periods", 0L);
+                throttled = stat.getOrDefault("nr_throttled", 0L);
+                throttledMicros = stat.getOrDefault("throttled_time", 0L) / 1000;
+            }
+            if (memoryDir != null) {
+                memoryUsed = readLong(memoryDir.resolve("memory.usage_in_bytes"));
+                long limit = readLong(memoryDir.resolve("memory.limit_in_bytes"));
+                memoryLimit = limit >= V1_UNLIMITED ? -1 : limit;
+            }
+            // v1 has no per-group PSI; fall back to the system-wide figures when present
+            Path systemPressure = Paths.get("/proc/pressure");
+            memoryPressureSome = readPressure(systemPressure.resolve("memory"), "some");
+            memoryPressureFull = readPressure(systemPressure.resolve("memory"), "full");
+            cpuPressureSome = readPressure(systemPressure.resolve("cpu"), "some");
+        }
+
+        double cpuUsageCores = 0;
+        double cpuThrottledPercent = 0;
+        double cpuThrottledMillisPerSec = 0;
+        if (lastUsageMicros >= 0 && elapsedMicros > 0) {
+            cpuUsageCores = (usageMicros - lastUsageMicros) / elapsedMicros;
+            long deltaPeriods = periods - lastPeriods;
+            cpuThrottledPercent = deltaPeriods > 0 ? (throttled - lastThrottled) * 100.0 / deltaPeriods : 0;
+            cpuThrottledMillisPerSec = (throttledMicros - lastThrottledMicros) / 1000.0 / (elapsedMicros / 1e6);
+        }
+        lastUsageMicros = usageMicros;
+        lastPeriods = periods;
+        lastThrottled = throttled;
+        lastThrottledMicros = throttledMicros;
+
+        Snapshot snapshot = new Snapshot(cpuLimitCores, cpuUsageCores, cpuThrottledPercent, cpuThrottledMillisPerSec,
+                memoryUsed, memoryLimit, memoryPressureSome, memoryPressureFull, cpuPressureSome);
+        latest = snapshot;
+        return snapshot;
+    }
+
+    private static String readString(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+    }
+
+    private static long readLong(Path file) throws IOException {
+        return Long.parseLong(readString(file));
+    }
+
+    private static Map<String, Long> readKeyValues(Path file) throws IOException {
+        Map<String, Long> values = new HashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length == 2) {
+                values.put(parts[0], Long.parseLong(parts[1]));
+            }
+        }
+        return values;
+    }
+
+    // "some avg10=0.12 avg60=0.05 avg300=0.01 total=1234" -> 0.12
+    private static double readPressure(Path file, String kind) {
+        if (!Files.isReadable(file)) {
+            return Double.NaN;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+                if (line.startsWith(kind + " ")) {
+                    for (String field : line.split("\\s+")) {
+                        if (field.startsWith("avg10=")) {
+                            return Double.parseDouble(field.substring(6));
+                        }
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // PSI disabled in the kernel
+        }
+        return Double.NaN;
+    }
+}
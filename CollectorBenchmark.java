@@ -0,0 +1,142 @@
+package com.example.demo.threads;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+// Cost per call of each HardwareMonitor collector: latency percentiles and bytes
+// allocated on the calling thread, plus the per-thread CPU scan at growing
+// thread counts. Collector output goes to a discarding stream so formatting is
+// measured but the terminal is not.
+//
+// Run: java com.example.demo.threads.CollectorBenchmark [iterations]
+class CollectorBenchmark {
+    private static final int[] THREAD_COUNTS = { 10, 100, 1000, 5000 };
+
+    static final class Result {
+        final String name;
+        final double meanMicros;
+        final double p50Micros;
+        final double p99Micros;
+        final double maxMicros;
+        final long bytesPerCall;
+
+        Result(String name, long[] nanos, long allocatedBytes) {
+            this.name = name;
+            long[] sorted = nanos.clone();
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long n : sorted) {
+                sum += n;
+            }
+            this.meanMicros = sum / 1000.0 / sorted.length;
+            this.p50Micros = sorted[sorted.length / 2] / 1000.0;
+            this.p99Micros = sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1000.0;
+            this.maxMicros = sorted[sorted.length - 1] / 1000.0;
+            this.bytesPerCall = allocatedBytes / sorted.length;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean allocationBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws InterruptedException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int warmup = Math.max(10, iterations / 5);
+        PrintStream console = System.out;
+
+        Map<String, Runnable> collectors = new LinkedHashMap<>();
+        collectors.put("monitorCPU", HardwareMonitor::monitorCPU);
+        // Without the gc() monitorMemory runs above 80% heap; that path is timed on its own below
+        collectors.put("monitorMemory (report)", HardwareMonitor::reportMemory);
+        collectors.put("sampleDiskSpace", HardwareMonitor::sampleDiskSpace);
+        collectors.put("monitorDisk", HardwareMonitor::monitorDisk);
+        collectors.put("monitorNetwork", HardwareMonitor::monitorNetwork);
+        collectors.put("monitorSystemInfo", HardwareMonitor::monitorSystemInfo);
+
+        List<Result> results = new ArrayList<>();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (Map.Entry<String, Runnable> collector : collectors.entrySet()) {
+                results.add(measure(collector.getKey(), collector.getValue(), warmup, iterations));
+            }
+        } finally {
+            System.setOut(console);
+        }
+        print("COLLECTOR COST PER CALL", results);
+
+        // A full collection costs milliseconds and only happens on a nearly full heap; mixed into the
+        // report's loop it would dominate p99 and max
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        int gcIterations = Math.max(5, iterations / 20);
+        print("MONITORMEMORY GC PATH (heap above 80%)", Collections.singletonList(
+                measure("monitorMemory gc()", memoryBean::gc, 2, gcIterations)));
+
+        List<Result> scans = new ArrayList<>();
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        for (int count : THREAD_COUNTS) {
+            CountDownLatch release = new CountDownLatch(1);
+            List<Thread> parked = startParkedThreads(count, release);
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                scans.add(measure("thread CPU scan @" + threadBean.getThreadCount() + " threads",
+                        () -> HardwareMonitor.monitorTopThreads(threadBean), warmup, iterations));
+            } finally {
+                System.setOut(console);
+                release.countDown();
+                for (Thread thread : parked) {
+                    thread.join();
+                }
+            }
+        }
+        print("THREAD CPU SCAN", scans);
+    }
+
+    static Result measure(String name, Runnable task, int warmup, int iterations) {
+        for (int i = 0; i < warmup; i++) {
+            task.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long[] nanos = new long[iterations];
+        long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            task.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return new Result(name, nanos, allocated);
+    }
+
+    private static List<Thread> startParkedThreads(int count, CountDownLatch release) {
+        List<Thread> threads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "bench-idle-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    private static void print(String title, List<Result> results) {
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println(title);
+        System.out.println("=".repeat(40));
+        System.out.printf("%-34s %10s %10s %10s %10s %12s\n", "Benchmark", "mean us", "p50 us", "p99 us",
+                "max us", "bytes/call");
+        for (Result result : results) {
+            System.out.printf("%-34s %10.1f %10.1f %10.1f %10.1f %12d\n", result.name, result.meanMicros,
+                    result.p50Micros, result.p99Micros, result.maxMicros, result.bytesPerCall);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+// Scan cost of the four strategies over a List of product objects versus the
+// columnar ProductStore. The object scans do what the strategies do today:
+// toLowerCase().contains for names, equalsIgnoreCase for categories.
+//
+// Run: java -Xmx8g com.example.demo.searchsystem.index.ColumnarScanBenchmark [sizes]
+//      e.g. 1000000,10000000 (the default)
+public class ColumnarScanBenchmark {
+    private static final String[] WORDS = { "wireless", "mouse", "mechanical", "keyboard", "gaming", "monitor",
+            "laptop", "stand", "coffee", "maker", "running", "shoes", "java", "book", "desk", "lamp" };
+    private static final String[] CATEGORIES = { "Electronics", "Books", "Home", "Sports", "Toys", "Garden",
+            "Fashion", "Beauty", "Grocery", "Automotive" };
+    private static final int WARMUP = 5;
+    private static final int RUNS = 7;
+
+    private static final class Row {
+        final String name;
+        final String category;
+        final double price;
+        final double rating;
+
+        Row(String name, String category, double price, double rating) {
+            this.name = name;
+            this.category = category;
+            this.price = price;
+            this.rating = rating;
+        }
+    }
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "1000000,10000000";
+        for (String size : sizes.split(",")) {
+            run(Integer.parseInt(size.trim()));
+        }
+    }
+
+    private static void run(int products) {
+        Random random = new Random(42);
+        List<Row> rows = new ArrayList<>(products);
+        ProductStore store = new ProductStore();
+        for (int i = 0; i < products; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+                    + Integer.toString(random.nextInt(1_000_000), 36);
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            double price = Math.round(random.nextDouble() * 100_000) / 100.0;
+            double rating = Math.round(random.nextDouble() * 50) / 10.0;
+            rows.add(new Row(name, category, price, rating));
+            store.add(name, category, price, rating);
+        }
+        double probePrice = rows.get(products / 2).price;
+
+        System.out.printf("\n%,d products, columnar store %,d MB\n", products, store.sizeInBytes() >> 20);
+        System.out.printf("%-10s %12s %12s %9s %10s\n", "Strategy", "objects ms", "columns ms", "speedup", "matches");
+        compare("linear", () -> objectNameContains(rows, "Keyboard"), () -> store.nameContains("Keyboard"));
+        compare("binary", () -> objectPriceEquals(rows, probePrice), () -> store.priceEquals(probePrice));
+        compare("category", () -> objectInCategory(rows, "electronics"), () -> store.inCategory("electronics"));
+        compare("rating", () -> objectRatingAtLeast(rows, 4.5), () -> store.ratingAtLeast(4.5));
+    }
+
+    private interface Scan {
+        int[] run();
+    }
+
+    private static void compare(String strategy, Scan objects, Scan columns) {
+        int[] expected = objects.run();
+        int[] actual = columns.run();
+        if (!Arrays.equals(expected, actual)) {
+            throw new IllegalStateException(strategy + ": columnar scan returned different products");
+        }
+        double objectMillis = medianMillis(objects);
+        double columnMillis = medianMillis(columns);
+        System.out.printf("%-10s %12.2f %12.2f %8.1fx %,10d\n", strategy, objectMillis, columnMillis,
+                objectMillis / columnMillis, actual.length);
+    }
+
+    private static double medianMillis(Scan scan) {
+        for (int i = 0; i < WARMUP; i++) {
+            scan.run();
+        }
+        double[] millis = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            scan.run();
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+
+    private static int[] objectNameContains(List<Row> rows, String text) {
+        String needle = text.toLowerCase();
+        return collect(rows, row -> row.name.toLowerCase().contains(needle));
+    }
+
+    private static int[] objectPriceEquals(List<Row> rows, double price) {
+        return collect(rows, row -> row.price == price);
+    }
+
+    private static int[] objectInCategory(List<Row> rows, String category) {
+        return collect(rows, row -> row.category.equalsIgnoreCase(category));
+    }
+
+    private static int[] objectRatingAtLeast(List<Row> rows, double minRating) {
+        // Same float precision as the store, so both sides agree on borderline ratings
+        float threshold = (float) minRating;
+        return collect(rows, row -> (float) row.rating >= threshold);
+    }
+
+    private static int[] collect(List<Row> rows, Predicate<Row> predicate) {
+        int[] result = new int[64];
+        int count = 0;
+        for (int id = 0; id < rows.size(); id++) {
+            if (predicate.test(rows.get(id))) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = id;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.demo.threads;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Per-mount disk space for every mount in /proc/self/mountinfo (File.listRoots()
+// only sees "/" on Linux), with a least-squares fit over the recorded used-bytes
+// history to predict when each mount fills up.
+class DiskSpaceTracker {
+    // Immutable: each sample() publishes new Mount objects, so readers never see one half-updated
+    static final class Mount {
+        final String path;
+        final String type;
+        final long total;
+        final long free;
+        final double usagePercent;
+        final double growthBytesPerSec;
+        final double secondsUntilFull;
+
+        Mount(String path, String type, long total, long free, double growthBytesPerSec) {
+            this.path = path;
+            this.type = type;
+            this.total = total;
+            this.free = free;
+            this.usagePercent = (total - free) * 100.0 / total;
+            this.growthBytesPerSec = growthBytesPerSec;
+            this.secondsUntilFull = growthBytesPerSec > 0 ? free / growthBytesPerSec : Double.POSITIVE_INFINITY;
+        }
+
+        long used() {
+            return total - free;
+        }
+    }
+
+    // Kernel and runtime pseudo filesystems that never fill up in a useful sense
+    private static final Set<String> PSEUDO_TYPES = new HashSet<>(Arrays.asList(
+            "proc", "sysfs", "devpts", "cgroup", "cgroup2", "mqueue", "debugfs", "tracefs", "securityfs",
+            "pstore", "bpf", "autofs", "hugetlbfs", "configfs", "fusectl", "binfmt_misc", "rpc_pipefs", "nsfs"));
+    private static final Path MOUNTINFO = Paths.get("/proc/self/mountinfo");
+    private static final int FIT_SAMPLES = 120;
+    private static final int MIN_FIT_SAMPLES = 5;
+    private static final long MIN_FIT_SPAN_MILLIS = 10_000;
+
+    private final MetricHistory metrics;
+    private volatile List<Mount> mounts = Collections.emptyList();
+    private final double[] fitValues = new double[FIT_SAMPLES];
+    private final long[] fitTimestamps = new long[FIT_SAMPLES];
+
+    DiskSpaceTracker(MetricHistory metrics) {
+        this.metrics = metrics;
+    }
+
+    List<Mount> mounts() {
+        return mounts;
+    }
+
+    // Called by one periodic task; the growth fit reads back the history this records
+    synchronized void sample() {
+        List<Mount> sampled = new ArrayList<>();
+        // Bind mounts show the same filesystem several times; keep the first mount point per device
+        Set<String> devices = new HashSet<>();
+        for (MountEntry entry : mountEntries()) {
+            String path = entry.path;
+            String type = entry.type;
+            if (PSEUDO_TYPES.contains(type) || devices.contains(entry.device)) {
+                continue;
+            }
+            long total;
+            long free;
+            try {
+                FileStore store = entry.store != null ? entry.store : Files.getFileStore(Paths.get(path));
+                total = store.getTotalSpace();
+                free = store.getUsableSpace();
+            } catch (IOException | SecurityException e) {
+                continue;
+            }
+            if (total <= 0) {
+                continue;
+            }
+            devices.add(entry.device);
+
+            String key = MetricHistory.key("disk_used_bytes", "mount", path);
+            metrics.record(key, total - free);
+            sampled.add(new Mount(path, type, total, free, fitGrowth(metrics.get(key))));
+        }
+        mounts = Collections.unmodifiableList(sampled);
+    }
+
+    void record() {
+        double maxUsage = 0;
+        double maxProjected = 0;
+        for (Mount mount : mounts) {
+            metrics.record(MetricHistory.key("disk_usage_percent", "mount", mount.path), mount.usagePercent);
+            metrics.record(MetricHistory.key("disk_growth_bytes_per_second", "mount", mount.path),
+                    mount.growthBytesPerSec);
+            if (!Double.isInfinite(mount.secondsUntilFull)) {
+                metrics.record(MetricHistory.key("disk_seconds_until_full", "mount", mount.path),
+                        mount.secondsUntilFull);
+            }
+            maxUsage = Math.max(maxUsage, mount.usagePercent);
+            maxProjected = Math.max(maxProjected, projectedUsagePercent(mount, 3600));
+        }
+        metrics.record("disk_max_usage_percent", maxUsage);
+        metrics.record("disk_max_projected_usage_percent", maxProjected);
+    }
+
+    // Usage the mount would reach after the given time at its current growth rate
+    static double projectedUsagePercent(Mount mount, double seconds) {
+        double growth = Math.max(0, mount.growthBytesPerSec) * seconds;
+        return Math.min(100, (mount.used() + growth) * 100.0 / mount.total);
+    }
+
+    // Least-squares slope of used bytes over the recorded history, or 0 until there is enough of it
+    private double fitGrowth(MetricHistory.Series series) {
+        int n = series.copyValues(fitValues);
+        series.copyTimestamps(fitTimestamps);
+        if (n < MIN_FIT_SAMPLES || fitTimestamps[n - 1] - fitTimestamps[0] < MIN_FIT_SPAN_MILLIS) {
+            return 0;
+        }
+
+        // Ordinary least squares of used bytes against seconds since the first sample
+        double sumT = 0;
+        double sumV = 0;
+        for (int i = 0; i < n; i++) {
+            sumT += (fitTimestamps[i] - fitTimestamps[0]) / 1000.0;
+            sumV += fitValues[i];
+        }
+        double meanT = sumT / n;
+        double meanV = sumV / n;
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < n; i++) {
+            double t = (fitTimestamps[i] - fitTimestamps[0]) / 1000.0 - meanT;
+            covariance += t * (fitValues[i] - meanV);
+            variance += t * t;
+        }
+        return variance > 0 ? covariance / variance : 0;
+    }
+
+    // One line of the mount table. The store is only known up front on the fallback path;
+    // mountinfo entries are resolved by path when sampled.
+    private static final class MountEntry {
+        final String device;
+        final String path;
+        final String type;
+        final FileStore store;
+
+        MountEntry(String device, String path, String type, FileStore store) {
+            this.device = device;
+            this.path = path;
+            this.type = type;
+            this.store = store;
+        }
+    }
+
+    // /proc/self/mountinfo lines read
+    // "id parent major:minor root mountpoint options [optional...] - type source superoptions".
+    // Elsewhere, fall back to every file store the default file system knows about (the roots
+    // alone are just "/" on macOS and the BSDs).
+    private static List<MountEntry> mountEntries() {
+        List<MountEntry> entries = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(MOUNTINFO, StandardCharsets.UTF_8)) {
+                int separator = line.indexOf(" - ");
+                if (separator < 0) {
+                    continue;
+                }
+                String[] fields = line.substring(0, separator).split(" ");
+                String[] tail = line.substring(separator + 3).split(" ");
+                if (fields.length >= 5 && tail.length >= 1) {
+                    String path = unescape(fields[4]);
+                    // A later mount on the same path hides the earlier one; only the top one is reachable
+                    entries.removeIf(entry -> entry.path.equals(path));
+                    entries.add(new MountEntry(fields[2], path, tail[0], null));
+                }
+            }
+            return entries;
+        } catch (IOException e) {
+            // Not Linux
+        }
+        for (FileStore store : FileSystems.getDefault().getFileStores()) {
+            // Store names repeat across pseudo mounts ("tmpfs", "devfs"), so key these by mount point
+            String path = mountPoint(store);
+            entries.add(new MountEntry(path, path, store.type(), store));
+        }
+        return entries;
+    }
+
+    // FileStore has no mount point accessor, but the JDK's Unix stores print as "mountpoint (name)"
+    // and the Windows ones as "label (C:)"; strip the name to get the part a reader recognises.
+    private static String mountPoint(FileStore store) {
+        String text = store.toString();
+        String suffix = " (" + store.name() + ")";
+        return text.endsWith(suffix) ? text.substring(0, text.length() - suffix.length()) : text;
+    }
+
+    // mountinfo escapes space, tab, newline and backslash in paths as \ooo octal
+    private static String unescape(String path) {
+        if (path.indexOf('\\') < 0) {
+            return path;
+        }
+        StringBuilder result = new StringBuilder(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '\\' && i + 3 < path.length()) {
+                result.append((char) Integer.parseInt(path.substring(i + 1, i + 4), 8));
+                i += 3;
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
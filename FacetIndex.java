@@ -0,0 +1,217 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.*;
+
+// Faceted navigation over product ordinals: one Bitmap per category, per
+// half-star rating bucket and per price band. A filter is an AND of a few
+// bitmaps and each facet count ("Electronics: 5, Books: 2") is an
+// andCardinality against the current result, so nothing scans the catalogue.
+public class FacetIndex {
+    private static final double[] PRICE_BAND_LIMITS = { 25, 50, 100, 250, 500, 1000 };
+    private static final String[] PRICE_BAND_LABELS = { "Under $25", "$25 - $50", "$50 - $100", "$100 - $250",
+            "$250 - $500", "$500 - $1000", "$1000 and over" };
+    private static final int RATING_BUCKETS = 11;
+
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+    private final List<String> categoryNames = new ArrayList<>();
+    private final List<Bitmap> categories = new ArrayList<>();
+    private final Bitmap[] ratingBuckets = new Bitmap[RATING_BUCKETS];
+    private final Bitmap[] priceBands = new Bitmap[PRICE_BAND_LABELS.length];
+    // Sizes kept alongside the bitmaps so planner estimates do not popcount a whole bitmap
+    private int[] categorySizes = new int[16];
+    private final int[] ratingBucketSizes = new int[RATING_BUCKETS];
+    private int[] categoryById = new int[1024];
+    private float[] ratingById = new float[1024];
+    private double[] priceById = new double[1024];
+    private int productCount;
+
+    public FacetIndex() {
+        for (int i = 0; i < ratingBuckets.length; i++) {
+            ratingBuckets[i] = new Bitmap();
+        }
+        for (int i = 0; i < priceBands.length; i++) {
+            priceBands[i] = new Bitmap();
+        }
+    }
+
+    public void add(int id, String category, double price, double rating) {
+        if (id >= categoryById.length) {
+            int capacity = Math.max(categoryById.length * 2, id + 1);
+            categoryById = Arrays.copyOf(categoryById, capacity);
+            ratingById = Arrays.copyOf(ratingById, capacity);
+            priceById = Arrays.copyOf(priceById, capacity);
+        }
+        int categoryId = categoryIds.computeIfAbsent(category.toLowerCase(Locale.ROOT), key -> {
+            categoryNames.add(category);
+            categories.add(new Bitmap());
+            if (categories.size() > categorySizes.length) {
+                categorySizes = Arrays.copyOf(categorySizes, categorySizes.length * 2);
+            }
+            return categories.size() - 1;
+        });
+        categories.get(categoryId).set(id);
+        categorySizes[categoryId]++;
+        categoryById[id] = categoryId;
+        priceById[id] = price;
+        priceBands[bandOf(price)].set(id);
+        ratingById[id] = (float) rating;
+        ratingBuckets[ratingBucket(ratingById[id])].set(id);
+        ratingBucketSizes[ratingBucket(ratingById[id])]++;
+        productCount = Math.max(productCount, id + 1);
+    }
+
+    public void updatePrice(int id, double price) {
+        priceBands[bandOf(priceById[id])].clear(id);
+        priceById[id] = price;
+        priceBands[bandOf(price)].set(id);
+    }
+
+    public void updateRating(int id, double rating) {
+        ratingBuckets[ratingBucket(ratingById[id])].clear(id);
+        ratingBucketSizes[ratingBucket(ratingById[id])]--;
+        ratingById[id] = (float) rating;
+        ratingBuckets[ratingBucket(ratingById[id])].set(id);
+        ratingBucketSizes[ratingBucket(ratingById[id])]++;
+    }
+
+    public float rating(int id) {
+        return ratingById[id];
+    }
+
+    public int productCount() {
+        return productCount;
+    }
+
+    public Bitmap all() {
+        return Bitmap.range(productCount);
+    }
+
+    // Category match is case-insensitive, as in the category strategy. The bitmap is shared; treat it as read-only
+    public Bitmap category(String category) {
+        Integer categoryId = categoryIds.get(category.toLowerCase(Locale.ROOT));
+        return categoryId == null ? new Bitmap() : categories.get(categoryId);
+    }
+
+    public String categoryOf(int id) {
+        return categoryNames.get(categoryById[id]);
+    }
+
+    public int categoryCount(String category) {
+        Integer categoryId = categoryIds.get(category.toLowerCase(Locale.ROOT));
+        return categoryId == null ? 0 : categorySizes[categoryId];
+    }
+
+    // Planner estimate: whole buckets above the threshold plus a linear share of the bucket it falls into
+    public int estimateRatingAtLeast(double minRating) {
+        float threshold = (float) minRating;
+        int partial = ratingBucket(threshold);
+        int count = 0;
+        for (int bucket = partial + 1; bucket < RATING_BUCKETS; bucket++) {
+            count += ratingBucketSizes[bucket];
+        }
+        double share = partial == RATING_BUCKETS - 1 ? 1 : Math.max(0, (partial + 1) / 2.0 - threshold) * 2;
+        return count + (int) Math.ceil(ratingBucketSizes[partial] * share);
+    }
+
+    // Whole buckets above the threshold are OR-ed; only the bucket the threshold falls into is checked per product
+    public Bitmap ratingAtLeast(double minRating) {
+        // Ratings are stored as float, so compare at that precision or a 4.1 product would miss "4.1 and up"
+        float threshold = (float) minRating;
+        Bitmap result = new Bitmap(productCount);
+        int partial = ratingBucket(threshold);
+        for (int bucket = partial + 1; bucket < RATING_BUCKETS; bucket++) {
+            result.orInPlace(ratingBuckets[bucket]);
+        }
+        if (threshold == partial / 2f) {
+            result.orInPlace(ratingBuckets[partial]);
+            return result;
+        }
+        for (int id : ratingBuckets[partial].toArray()) {
+            if (ratingById[id] >= threshold) {
+                result.set(id);
+            }
+        }
+        return result;
+    }
+
+    // Shared like category(); treat as read-only
+    public Bitmap priceBand(int band) {
+        return priceBands[band];
+    }
+
+    // Any of the arguments may be null / NaN / negative to leave that facet unfiltered
+    public Bitmap filter(String category, double minRating, int priceBand) {
+        Bitmap result = category != null ? category(category).and(all()) : all();
+        if (!Double.isNaN(minRating)) {
+            result = result.and(ratingAtLeast(minRating));
+        }
+        if (priceBand >= 0) {
+            result = result.and(priceBands[priceBand]);
+        }
+        return result;
+    }
+
+    // Non-zero category counts within matches, largest first
+    public Map<String, Integer> categoryCounts(Bitmap matches) {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+        for (int i = 0; i < categories.size(); i++) {
+            int count = categories.get(i).andCardinality(matches);
+            if (count > 0) {
+                counts.add(new AbstractMap.SimpleEntry<>(categoryNames.get(i), count));
+            }
+        }
+        counts.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : counts) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    // Counts per price band in band order, zero bands included so the storefront can grey them out
+    public Map<String, Integer> priceBandCounts(Bitmap matches) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int band = 0; band < priceBands.length; band++) {
+            result.put(PRICE_BAND_LABELS[band], priceBands[band].andCardinality(matches));
+        }
+        return result;
+    }
+
+    // Cumulative "N stars & up" counts for 1 to 5 stars
+    public Map<String, Integer> ratingCounts(Bitmap matches) {
+        int[] perBucket = new int[RATING_BUCKETS];
+        for (int bucket = 0; bucket < RATING_BUCKETS; bucket++) {
+            perBucket[bucket] = ratingBuckets[bucket].andCardinality(matches);
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int stars = 5; stars >= 1; stars--) {
+            int count = 0;
+            for (int bucket = stars * 2; bucket < RATING_BUCKETS; bucket++) {
+                count += perBucket[bucket];
+            }
+            result.put(stars == 5 ? "5 stars" : stars + (stars == 1 ? " star & up" : " stars & up"), count);
+        }
+        return result;
+    }
+
+    public static String priceBandLabel(int band) {
+        return PRICE_BAND_LABELS[band];
+    }
+
+    public static int priceBandCount() {
+        return PRICE_BAND_LABELS.length;
+    }
+
+    public static int bandOf(double price) {
+        int band = 0;
+        while (band < PRICE_BAND_LIMITS.length && price >= PRICE_BAND_LIMITS[band]) {
+            band++;
+        }
+        return band;
+    }
+
+    // Half-star buckets: [0, 0.5) -> 0 ... [4.5, 5) -> 9, 5.0 -> 10
+    private static int ratingBucket(double rating) {
+        return Math.max(0, Math.min(RATING_BUCKETS - 1, (int) Math.floor(rating * 2)));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.*;
+
+// Trigram-filtered fuzzy search against the naive approach of computing the
+// full edit distance between the query and every word of every product name.
+//
+// Run: java com.example.demo.searchsystem.index.FuzzyBenchmark [products]
+public class FuzzyBenchmark {
+    private static final String[] WORDS = { "headphones", "wireless", "mouse", "keyboard", "mechanical", "gaming",
+            "monitor", "laptop", "smartphone", "charger", "speaker", "bluetooth", "camera", "tripod", "desk",
+            "chair", "coffee", "maker", "running", "shoes", "programming", "book", "java", "python", "backpack" };
+    private static final String[] QUERIES = { "Hedphones", "wireles mouse", "mechancal keybord", "bluetoth speakr",
+            "progamming book" };
+    private static final int MAX_EDITS = 2;
+
+    public static void main(String[] args) {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+
+        // Real catalogue words plus a long tail of brand-like words
+        String[] vocabulary = new String[20_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = i < WORDS.length ? WORDS[i] : randomWord(random);
+        }
+        String[][] productWords = new String[products][];
+        InvertedIndex names = new InvertedIndex();
+        FuzzyIndex fuzzy = new FuzzyIndex(names);
+        long buildStart = System.nanoTime();
+        for (int id = 0; id < products; id++) {
+            String[] words = new String[1 + random.nextInt(3)];
+            for (int w = 0; w < words.length; w++) {
+                words[w] = random.nextInt(3) == 0 ? WORDS[random.nextInt(WORDS.length)]
+                        : vocabulary[random.nextInt(vocabulary.length)];
+            }
+            productWords[id] = words;
+            String name = String.join(" ", words);
+            names.add(id, name);
+            fuzzy.add(name);
+        }
+        System.out.printf("Indexed %,d products, %,d distinct words in %.0f ms\n", products,
+                fuzzy.vocabularySize(), (System.nanoTime() - buildStart) / 1e6);
+
+        System.out.printf("%-20s %10s %12s %10s %12s %8s\n", "Query", "matches", "indexed ms", "checks",
+                "naive ms", "same");
+        for (String query : QUERIES) {
+            // Warm up both paths once so the comparison is not dominated by JIT compilation
+            fuzzy.search(query, MAX_EDITS);
+            long checksBefore = fuzzy.verifiedCount();
+            long start = System.nanoTime();
+            int[] indexed = fuzzy.search(query, MAX_EDITS);
+            double indexedMillis = (System.nanoTime() - start) / 1e6;
+            long checks = fuzzy.verifiedCount() - checksBefore;
+
+            start = System.nanoTime();
+            int[] naive = naiveSearch(productWords, query);
+            double naiveMillis = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf("%-20s %10d %12.2f %10d %12.0f %8s\n", query, indexed.length, indexedMillis, checks,
+                    naiveMillis, Arrays.equals(indexed, naive));
+        }
+    }
+
+    private static int[] naiveSearch(String[][] productWords, String query) {
+        List<String> queryWords = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokens(query)));
+        int[] result = new int[16];
+        int count = 0;
+        for (int id = 0; id < productWords.length; id++) {
+            boolean all = true;
+            for (String queryWord : queryWords) {
+                boolean any = false;
+                for (String word : productWords[id]) {
+                    if (levenshtein(queryWord, word) <= MAX_EDITS) {
+                        any = true;
+                        break;
+                    }
+                }
+                if (!any) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = id;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Textbook full-matrix edit distance
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static String randomWord(Random random) {
+        char[] word = new char[4 + random.nextInt(7)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.*;
+
+// Typo-tolerant name lookup. Candidates come from a trigram index over the
+// distinct name vocabulary (not over products, which repeat the same words
+// millions of times). Only terms sharing enough trigrams with the query word go
+// through BoundedLevenshtein, and the terms that pass are resolved to products
+// through the InvertedIndex postings.
+public class FuzzyIndex {
+    private static final class TermList {
+        int[] ids = new int[4];
+        int size;
+    }
+
+    private final InvertedIndex names;
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final Map<Long, TermList> trigrams = new HashMap<>();
+    private int[] counts = new int[1024];
+    private int[] touched = new int[1024];
+    private long verified;
+
+    public FuzzyIndex(InvertedIndex names) {
+        this.names = names;
+    }
+
+    // Registers any words of the name not seen before; call alongside InvertedIndex.add
+    public void add(String name) {
+        for (String token : Tokenizer.tokens(name)) {
+            if (termIds.containsKey(token)) {
+                continue;
+            }
+            int termId = terms.size();
+            termIds.put(token, termId);
+            terms.add(token);
+            for (long trigram : trigrams(token)) {
+                append(trigram, termId);
+            }
+        }
+    }
+
+    public int vocabularySize() {
+        return terms.size();
+    }
+
+    // Edit-distance checks performed so far, to show how few candidates survive the trigram filter
+    public long verifiedCount() {
+        return verified;
+    }
+
+    // Products with, for every query word, a name word within maxEdits edits of it
+    public int[] search(String query, int maxEdits) {
+        int[] result = null;
+        for (String word : new LinkedHashSet<>(Tokenizer.tokens(query))) {
+            int[] matches = names.or(matchingTerms(word, maxEdits));
+            result = result == null ? matches : intersect(result, matches);
+            if (result.length == 0) {
+                break;
+            }
+        }
+        return result == null ? new int[0] : result;
+    }
+
+    public List<String> matchingTerms(String word, int maxEdits) {
+        String key = word.toLowerCase(Locale.ROOT);
+        long[] queryTrigrams = trigrams(key);
+        // Each edit destroys at most three trigrams (q-gram lemma)
+        int required = queryTrigrams.length - 3 * maxEdits;
+        List<String> matches = new ArrayList<>();
+
+        if (required <= 0) {
+            // Too short to filter on trigrams; the length bound still prunes most of the vocabulary
+            for (String term : terms) {
+                if (verify(key, term, maxEdits)) {
+                    matches.add(term);
+                }
+            }
+            return matches;
+        }
+
+        if (counts.length < terms.size()) {
+            counts = new int[Math.max(terms.size(), counts.length * 2)];
+        }
+        int touchedCount = 0;
+        for (long trigram : queryTrigrams) {
+            TermList postings = trigrams.get(trigram);
+            if (postings == null) {
+                continue;
+            }
+            for (int i = 0; i < postings.size; i++) {
+                int termId = postings.ids[i];
+                if (counts[termId]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = termId;
+                }
+            }
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            int termId = touched[i];
+            if (counts[termId] >= required && verify(key, terms.get(termId), maxEdits)) {
+                matches.add(terms.get(termId));
+            }
+            counts[termId] = 0;
+        }
+        return matches;
+    }
+
+    private boolean verify(String word, String term, int maxEdits) {
+        if (Math.abs(word.length() - term.length()) > maxEdits) {
+            return false;
+        }
+        verified++;
+        return BoundedLevenshtein.distance(word, term, maxEdits) <= maxEdits;
+    }
+
+    private void append(long trigram, int termId) {
+        TermList postings = trigrams.computeIfAbsent(trigram, t -> new TermList());
+        if (postings.size == postings.ids.length) {
+            postings.ids = Arrays.copyOf(postings.ids, postings.size * 2);
+        }
+        postings.ids[postings.size++] = termId;
+    }
+
+    // Distinct trigrams of "$word$", three 16-bit chars packed into a long
+    private static long[] trigrams(String word) {
+        String padded = "$" + word + "$";
+        long[] result = new long[Math.max(0, padded.length() - 2)];
+        int count = 0;
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            long trigram = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = result[j] == trigram;
+            }
+            if (!seen) {
+                result[count++] = trigram;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length;) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -4,22 +4,56 @@ import java.io.*;
 import java.lang.management.*;
 import java.net.*;
 import java.nio.file.*;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 public class HardwareMonitor {
-    private static final AtomicBoolean monitoring = new AtomicBoolean(false);
-    private static ScheduledExecutorService scheduler;
-    private static List<Future<?>> monitoringTasks;
+    private static MonitorRegistry registry;
+    static final MetricHistory metrics = new MetricHistory(300);
+    private static final JfrEventMonitor jfrMonitor = new JfrEventMonitor();
+    private static final PrometheusExporter prometheusExporter = new PrometheusExporter(metrics, 1000);
+    private static final int PROMETHEUS_PORT = 9400;
+    private static final AlertEngine alertEngine = new AlertEngine();
+    private static final int AGGREGATOR_PORT = 9500;
+    private static final String[] SIMULATED_KEYS = { "cpu_process_usage_percent", "cpu_system_usage_percent",
+            "jvm_heap_usage_percent", "jvm_threads_live", "jvm_heap_used_bytes" };
+    private static final double[] SIMULATED_MIN = { 0, 0, 0, 1, 0 };
+    private static final double[] SIMULATED_MAX = { 100, 100, 100, 500, 4L << 30 };
+    private static final Map<MetricAgent, double[]> simulatedAgents = new ConcurrentHashMap<>();
+    private static final MetricAggregator aggregator = new MetricAggregator(new MetricHistory(120));
+    private static final PrometheusExporter aggregateExporter = new PrometheusExporter(aggregator.store(), 1000);
+    private static final List<MetricAgent> agents = new CopyOnWriteArrayList<>();
+    private static final CgroupMetrics cgroup = CgroupMetrics.detect();
+    private static final JvmInternalsSampler jvmInternals = new JvmInternalsSampler(jfrMonitor);
+    private static final LinuxIoCollector ioCollector =
+            LinuxIoCollector.isSupported() ? new LinuxIoCollector(metrics) : null;
+    private static final DiskSpaceTracker diskSpace = new DiskSpaceTracker(metrics);
+    private static final ProcessTable processTable = new ProcessTable();
+    private static final StackSampler profiler = new StackSampler(64, 0.01);
+    private static final AlertEngine.StdoutSink consoleAlerts = new AlertEngine.StdoutSink();
+    private static final int PROFILER_HZ = 20;
+    // The registered monitors that print to the console; keep in step with registerMonitors()
+    private static final String[] DISPLAY_MONITORS = { "cpu", "memory", "disk", "network", "system", "container",
+            "processes", "jvm", "jfr" };
+    private static long lastSelfCpuNanos;
+    // Threads our services run outside the registry: JFR streaming, the profiler, the HTTP exporter,
+    // the aggregator, the alert webhook and the dashboard refresher
+    private static final String[] SERVICE_THREAD_PREFIXES = { "JFR ", "stack-sampler", "prometheus-http",
+            "HTTP-Dispatcher", "metric-aggregator", "alert-webhook", "dashboard-refresh" };
+    private static final Map<Long, Long> serviceThreadCpuNanos = new HashMap<>();
+    private static long serviceCpuNanos;
+    private static long lastSelfSampleNanos;
 
     public static void main(String[] args) {
         System.out.println("=== Java Hardware Monitoring with Threads ===");
         System.out.println("Starting at: " + new Date());
 
         Scanner scanner = new Scanner(System.in);
-        monitoringTasks = new ArrayList<>();
-        scheduler = Executors.newScheduledThreadPool(5);
+        registry = new MonitorRegistry(2, 2);
+        registerMonitors();
+        configureAlerts();
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             shutdown();
@@ -27,7 +61,7 @@ public class HardwareMonitor {
 
         while (true) {
             printMenu();
-            int choice = getIntInput(scanner, "Choose an option (1-8): ");
+            int choice = getIntInput(scanner, "Choose an option (1-18): ");
 
             switch (choice) {
                 case 1:
@@ -49,9 +83,39 @@ public class HardwareMonitor {
                     startComprehensiveMonitoring();
                     break;
                 case 7:
-                    stopAllMonitoring();
+                    startJfrMonitoring();
                     break;
                 case 8:
+                    startContainerMonitoring();
+                    break;
+                case 9:
+                    startJvmInternalsMonitoring();
+                    break;
+                case 10:
+                    startPrometheusEndpoint();
+                    break;
+                case 11:
+                    runDashboard(scanner);
+                    continue;
+                case 12:
+                    showAlertRules();
+                    break;
+                case 13:
+                    multiNodeMenu(scanner);
+                    break;
+                case 14:
+                    profilerMenu(scanner);
+                    break;
+                case 15:
+                    startProcessTableMonitoring();
+                    break;
+                case 16:
+                    stopMonitor(scanner);
+                    break;
+                case 17:
+                    stopAllMonitoring();
+                    break;
+                case 18:
                     shutdown();
                     scanner.close();
                     return;
@@ -73,11 +137,165 @@ public class HardwareMonitor {
         System.out.println("4. Start Network Monitoring");
         System.out.println("5. Start System Info Monitoring");
         System.out.println("6. Start Comprehensive Monitoring (All)");
-        System.out.println("7. Stop All Monitoring");
-        System.out.println("8. Exit");
+        System.out.println("7. Start JFR Event Streaming Monitoring");
+        System.out.println("8. Start Container (cgroup) Monitoring");
+        System.out.println("9. Start JVM Internals Monitoring");
+        System.out.println("10. Start Prometheus Metrics Endpoint");
+        System.out.println("11. Open Terminal Dashboard");
+        System.out.println("12. Show Alert Rules");
+        System.out.println("13. Multi-Node Aggregation");
+        System.out.println("14. Continuous Profiler (Flame Graphs)");
+        System.out.println("15. Start Process Table Monitoring");
+        System.out.println("16. Stop a Monitor");
+        System.out.println("17. Stop All Monitoring");
+        System.out.println("18. Exit");
         System.out.println("=".repeat(60));
     }
 
+    private static void registerMonitors() {
+        // Sample faster while a metric moves or crosses its alert level, back off when idle
+        registry.registerAdaptive("cpu", "CPU", HardwareMonitor::monitorCPU,
+                () -> Math.max(metrics.latest("cpu_system_usage_percent", 0),
+                        metrics.latest("cpu_process_usage_percent", 0)),
+                new AdaptiveInterval(2000, 500, 10_000, 90, 0.10), false);
+        registry.registerAdaptive("memory", "Memory", HardwareMonitor::monitorMemory,
+                () -> metrics.latest("jvm_heap_usage_percent", Double.NaN),
+                new AdaptiveInterval(3000, 500, 15_000, 80, 0.05), false);
+        // Disk rate follows usage projected an hour ahead: slow with headroom, fast when filling
+        registry.registerAdaptive("disk", "Disk", HardwareMonitor::monitorDisk,
+                () -> metrics.latest("disk_max_projected_usage_percent", Double.NaN),
+                new AdaptiveInterval(5000, 1000, 60_000, 90, 0.01), true);
+        registry.registerAdaptive("network", "Network", HardwareMonitor::monitorNetwork,
+                HardwareMonitor::totalNetworkBytesPerSecond,
+                AdaptiveInterval.volatilityOnly(4000, 1000, 20_000, 0.5), true);
+        registry.register("system", "System Info", HardwareMonitor::monitorSystemInfo, 10, TimeUnit.SECONDS, true);
+        if (cgroup != null) {
+            registry.register("container", "Container (cgroup)", HardwareMonitor::monitorContainer, 2, TimeUnit.SECONDS, false);
+        }
+        registry.register("processes", "Process Table", HardwareMonitor::monitorProcesses, 2, TimeUnit.SECONDS, true);
+        registry.register("jvm", "JVM Internals", HardwareMonitor::monitorJvmInternals, 5, TimeUnit.SECONDS, false);
+        registry.registerService("jfr", "JFR Event Streaming",
+                () -> jfrMonitor.start(Duration.ofSeconds(1)), jfrMonitor::stop);
+        registry.register("metrics", "Metrics Collection", HardwareMonitor::collectMetrics, 1, TimeUnit.SECONDS, false);
+        registry.registerService("prometheus", "Prometheus Endpoint",
+                () -> prometheusExporter.start(PROMETHEUS_PORT), prometheusExporter::stop);
+        registry.registerService("aggregator", "Metric Aggregator", () -> {
+            try {
+                aggregator.start(AGGREGATOR_PORT);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            aggregateExporter.start(PROMETHEUS_PORT + 1);
+        }, () -> {
+            aggregateExporter.stop();
+            aggregator.stop();
+        });
+        registry.registerService("profiler", "Stack Sampling Profiler",
+                () -> profiler.start(PROFILER_HZ), profiler::stop);
+        registry.register("agents", "Metric Agent Push", () -> {
+            for (MetricAgent agent : agents) {
+                agent.flush();
+            }
+        }, 1, TimeUnit.SECONDS, false);
+        registry.register("simulation", "Simulated Agents", HardwareMonitor::simulateAgents,
+                250, TimeUnit.MILLISECONDS, false);
+        // The one caller of jvmInternals.sample(); the JVM internals panel and collectMetrics read its snapshot
+        registry.register("jvmstats", "JVM Internals Sampling", () -> jvmInternals.sample().record(metrics),
+                1, TimeUnit.SECONDS, false);
+        // The one caller of diskSpace.sample(); the disk report and the dashboard read its mounts.
+        // statvfs can block on a hung network mount, so it runs on the slow executor, at the disk policy's rate.
+        registry.registerAdaptive("diskspace", "Disk Space Sampling", HardwareMonitor::sampleDiskSpace,
+                () -> metrics.latest("disk_max_projected_usage_percent", Double.NaN),
+                new AdaptiveInterval(5000, 1000, 60_000, 90, 0.01), true);
+        if (cgroup != null) {
+            // The one caller of cgroup.sample(); the CPU, memory and container reports read its snapshot
+            registry.register("cgroup", "Cgroup Sampling", () -> {
+                try {
+                    cgroup.sample().record(metrics);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, 1, TimeUnit.SECONDS, false);
+        }
+        if (ioCollector != null) {
+            registry.register("io", "I/O Rate Sampling", () -> {
+                try {
+                    ioCollector.sample();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, 100, TimeUnit.MILLISECONDS, false);
+        }
+    }
+
+    // Rules come from -Dhardwaremonitor.alerts=<file>; sinks from alertLog/webhook properties
+    private static void configureAlerts() {
+        String rulesFile = System.getProperty("hardwaremonitor.alerts");
+        try {
+            if (rulesFile != null) {
+                for (AlertEngine.Rule rule : AlertEngine.loadRules(Paths.get(rulesFile))) {
+                    alertEngine.addRule(rule);
+                }
+            } else {
+                alertEngine.addRule(AlertEngine.parseRule("HighProcessCpu = cpu_process_usage_percent > 90 clear 80 for 30s"));
+                alertEngine.addRule(AlertEngine.parseRule("HighHeapUsage = jvm_heap_usage_percent > 80 clear 70 for 10s"));
+                alertEngine.addRule(AlertEngine.parseRule("LowDiskSpace = disk_max_usage_percent > 90 clear 88"));
+                alertEngine.addRule(AlertEngine.parseRule("SwapGrowth = rate(memory_swap_used_bytes) > 10485760 clear 1048576 for 30s"));
+                alertEngine.addRule(AlertEngine.parseRule("CpuThrottling = container_cpu_throttled_periods_percent > 20 clear 10 for 30s"));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error loading alert rules: " + e.getMessage());
+        }
+
+        alertEngine.addSink(new AlertEngine.RateLimitedSink(consoleAlerts, 5, 60_000));
+        String alertLog = System.getProperty("hardwaremonitor.alertLog");
+        if (alertLog != null) {
+            alertEngine.addSink(new AlertEngine.RateLimitedSink(new AlertEngine.FileSink(Paths.get(alertLog)), 60, 60_000));
+        }
+        String webhook = System.getProperty("hardwaremonitor.webhook");
+        if (webhook != null) {
+            try {
+                alertEngine.addSink(new AlertEngine.RateLimitedSink(new AlertEngine.WebhookSink(new URL(webhook)), 10, 60_000));
+            } catch (MalformedURLException e) {
+                System.err.println("Invalid webhook URL: " + e.getMessage());
+            }
+        }
+        metrics.addListener(alertEngine);
+    }
+
+    private static void showAlertRules() {
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println("ALERT RULES - " + new Date());
+        System.out.println("=".repeat(40));
+        for (AlertEngine.Rule rule : alertEngine.rules()) {
+            System.out.printf("%-8s %s (last: %.2f)\n",
+                    rule.isFiring() ? "FIRING" : "ok", rule, rule.lastValue());
+        }
+    }
+
+    private static boolean startMonitor(String name, long initialDelayMillis) {
+        MonitorRegistry.Monitor monitor = registry.get(name);
+        if (!registry.start(name, initialDelayMillis)) {
+            System.out.println(monitor.label + " monitoring already running.");
+            return false;
+        }
+        if (monitor.isAdaptive()) {
+            System.out.printf("%s monitoring started! Updating every %s to %s (adaptive).\n",
+                    monitor.label, formatInterval(monitor.policy().minMillis()),
+                    formatInterval(monitor.policy().maxMillis()));
+        } else if (monitor.isPeriodic()) {
+            System.out.printf("%s monitoring started! Updating every %s.\n",
+                    monitor.label, formatInterval(monitor.intervalMillis()));
+        } else {
+            System.out.println(monitor.label + " monitoring started!");
+        }
+        return true;
+    }
+
+    private static String formatInterval(long millis) {
+        return millis % 1000 == 0 ? (millis / 1000) + " seconds" : millis + " ms";
+    }
+
     private static int getIntInput(Scanner scanner, String message) {
         System.out.print(message);
         while (!scanner.hasNextInt()) {
@@ -95,48 +313,24 @@ public class HardwareMonitor {
 
     // CPU Monitoring
     private static void startCPUMonitoring() {
-        if (monitoring.get()) {
-            System.out.println("Monitoring already running. Stop first.");
-            return;
-        }
-
         System.out.println("\n--- Starting CPU Monitoring ---");
-        monitoring.set(true);
-
-        Future<?> cpuTask = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                monitorCPU();
-            } catch (Exception e) {
-                System.err.println("Error in CPU monitoring: " + e.getMessage());
-            }
-        }, 0, 2, TimeUnit.SECONDS);
-
-        monitoringTasks.add(cpuTask);
-        System.out.println("CPU monitoring started! Updating every 2 seconds.");
+        startMonitor("cpu", 0);
+        startCgroupSampler();
     }
 
-    private static void monitorCPU() {
+    static void monitorCPU() {
         OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
         ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
 
         // Get CPU usage
         if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
             com.sun.management.OperatingSystemMXBean sunOsBean = (com.sun.management.OperatingSystemMXBean) osBean;
-
-            double systemCpuLoad = sunOsBean.getSystemCpuLoad() * 100;
-            double processCpuLoad = sunOsBean.getProcessCpuLoad() * 100;
-            long availableProcessors = sunOsBean.getAvailableProcessors();
-
-            System.out.println("\n" + "=".repeat(40));
-            System.out.println("CPU STATISTICS - " + new Date());
-            System.out.println("=".repeat(40));
-            System.out.printf("System CPU Usage: %.2f%%\n", systemCpuLoad);
-            System.out.printf("Process CPU Usage: %.2f%%\n", processCpuLoad);
-            System.out.printf("Available Processors: %d\n", availableProcessors);
-            System.out.printf("System Load Average: %.2f\n", osBean.getSystemLoadAverage());
+            reportCPU(sunOsBean.getCpuLoad() * 100, sunOsBean.getProcessCpuLoad() * 100);
         }
 
         // Thread information
+        metrics.record("jvm_threads_live", threadBean.getThreadCount());
+        metrics.record("jvm_threads_peak", threadBean.getPeakThreadCount());
         System.out.printf("Live Threads: %d\n", threadBean.getThreadCount());
         System.out.printf("Peak Threads: %d\n", threadBean.getPeakThreadCount());
         System.out.printf("Total Started Threads: %d\n", threadBean.getTotalStartedThreadCount());
@@ -145,7 +339,52 @@ public class HardwareMonitor {
         monitorTopThreads(threadBean);
     }
 
-    private static void monitorTopThreads(ThreadMXBean threadBean) {
+    // Shared by the MXBean poller and the JFR event stream
+    static void reportCPU(double systemCpuLoad, double processCpuLoad) {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        metrics.record("cpu_system_usage_percent", systemCpuLoad);
+        metrics.record("cpu_process_usage_percent", processCpuLoad);
+        metrics.record("cpu_load_average", osBean.getSystemLoadAverage());
+
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println("CPU STATISTICS - " + new Date());
+        System.out.println("=".repeat(40));
+        System.out.printf("System CPU Usage: %.2f%%\n", systemCpuLoad);
+        System.out.printf("Process CPU Usage: %.2f%%\n", processCpuLoad);
+        System.out.printf("Available Processors: %d\n", osBean.getAvailableProcessors());
+        System.out.printf("System Load Average: %.2f\n", osBean.getSystemLoadAverage());
+
+        // Host-wide figures above; inside a container the cgroup limit is what matters
+        CgroupMetrics.Snapshot container = cgroup == null ? null : cgroup.latest();
+        if (container != null && !Double.isNaN(container.cpuLimitCores)) {
+            System.out.printf("Container CPU: %.2f of %.2f cores (%.1f%% of limit), throttled %.1f%% of periods\n",
+                    container.cpuUsageCores, container.cpuLimitCores,
+                    container.cpuUsagePercentOfLimit(), container.cpuThrottledPercent);
+        }
+    }
+
+    static void reportTopThreadLoads(Map<String, Double> threadLoads) {
+        System.out.println("Top 5 CPU-consuming threads:");
+        threadLoads.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(5)
+                .forEach(entry -> System.out.printf("  %-25s CPU: %7.2f%%\n",
+                        truncateThreadName(entry.getKey()), entry.getValue()));
+    }
+
+    static void reportAllocationRate(double bytesPerSecond) {
+        metrics.record("jvm_allocation_rate_bytes", bytesPerSecond);
+        System.out.printf("Allocation Rate: %s/s\n", formatBytes((long) bytesPerSecond));
+    }
+
+    static void reportGarbageCollection(String name, String cause, double durationMs, double longestPauseMs) {
+        metrics.record(MetricHistory.key("jvm_gc_duration_millis", "gc", name), durationMs);
+        metrics.record(MetricHistory.key("jvm_gc_pause_millis", "gc", name), longestPauseMs);
+        System.out.printf("GC: %s (%s) took %.2fms, longest pause %.2fms\n",
+                name, cause, durationMs, longestPauseMs);
+    }
+
+    static void monitorTopThreads(ThreadMXBean threadBean) {
         long[] threadIds = threadBean.getAllThreadIds();
         Map<Long, Long> threadCPU = new HashMap<>();
 
@@ -178,27 +417,23 @@ public class HardwareMonitor {
 
     // Memory Monitoring
     private static void startMemoryMonitoring() {
-        if (monitoring.get()) {
-            System.out.println("Monitoring already running. Stop first.");
-            return;
-        }
-
         System.out.println("\n--- Starting Memory Monitoring ---");
-        monitoring.set(true);
+        startMonitor("memory", 0);
+        startCgroupSampler();
+    }
 
-        Future<?> memoryTask = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                monitorMemory();
-            } catch (Exception e) {
-                System.err.println("Error in memory monitoring: " + e.getMessage());
-            }
-        }, 0, 3, TimeUnit.SECONDS);
+    static void monitorMemory() {
+        double heapUsagePercent = reportMemory();
 
-        monitoringTasks.add(memoryTask);
-        System.out.println("Memory monitoring started! Updating every 3 seconds.");
+        // Run garbage collection if memory is high
+        if (heapUsagePercent > 80) {
+            System.out.println("⚠️  High memory usage! Running garbage collection...");
+            ManagementFactory.getMemoryMXBean().gc();
+        }
     }
 
-    private static void monitorMemory() {
+    // The memory report without the collection it may trigger; returns heap usage in percent
+    static double reportMemory() {
         OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
         MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
         List<MemoryPoolMXBean> memoryPools = ManagementFactory.getMemoryPoolMXBeans();
@@ -210,6 +445,8 @@ public class HardwareMonitor {
         // Heap Memory
         MemoryUsage heapUsage = memoryBean.getHeapMemoryUsage();
         double heapUsagePercent = (heapUsage.getUsed() * 100.0 / heapUsage.getMax());
+        metrics.record("jvm_heap_used_bytes", heapUsage.getUsed());
+        metrics.record("jvm_heap_usage_percent", heapUsagePercent);
         System.out.printf("Heap Memory:     %8s / %8s (%5.1f%%)\n",
                 formatBytes(heapUsage.getUsed()),
                 formatBytes(heapUsage.getMax()),
@@ -225,10 +462,11 @@ public class HardwareMonitor {
         if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
             com.sun.management.OperatingSystemMXBean sunOsBean = (com.sun.management.OperatingSystemMXBean) osBean;
 
-            long totalPhysical = sunOsBean.getTotalPhysicalMemorySize();
-            long freePhysical = sunOsBean.getFreePhysicalMemorySize();
+            long totalPhysical = sunOsBean.getTotalMemorySize();
+            long freePhysical = sunOsBean.getFreeMemorySize();
             long usedPhysical = totalPhysical - freePhysical;
             double physicalUsagePercent = (usedPhysical * 100.0 / totalPhysical);
+            metrics.record("memory_physical_used_bytes", usedPhysical);
 
             System.out.printf("Physical Memory: %8s / %8s (%5.1f%%)\n",
                     formatBytes(usedPhysical),
@@ -239,6 +477,7 @@ public class HardwareMonitor {
             long freeSwap = sunOsBean.getFreeSwapSpaceSize();
             long usedSwap = totalSwap - freeSwap;
             double swapUsagePercent = totalSwap > 0 ? (usedSwap * 100.0 / totalSwap) : 0;
+            metrics.record("memory_swap_used_bytes", usedSwap);
 
             System.out.printf("Swap Space:      %8s / %8s (%5.1f%%)\n",
                     formatBytes(usedSwap),
@@ -246,12 +485,21 @@ public class HardwareMonitor {
                     swapUsagePercent);
         }
 
+        CgroupMetrics.Snapshot container = cgroup == null ? null : cgroup.latest();
+        if (container != null && container.memoryLimit > 0) {
+            System.out.printf("Container Limit: %8s / %8s (%5.1f%%)\n",
+                    formatBytes(container.memoryUsed),
+                    formatBytes(container.memoryLimit),
+                    container.memoryUsagePercentOfLimit());
+        }
+
         // Memory Pools
         System.out.println("\nMemory Pools:");
         for (MemoryPoolMXBean pool : memoryPools) {
             if (pool.getUsage().getMax() > 0) {
                 MemoryUsage usage = pool.getUsage();
                 double usagePercent = (usage.getUsed() * 100.0 / usage.getMax());
+                metrics.record(MetricHistory.key("jvm_memory_pool_used_bytes", "pool", pool.getName()), usage.getUsed());
                 System.out.printf("  %-20s: %8s / %8s (%5.1f%%)\n",
                         truncatePoolName(pool.getName()),
                         formatBytes(usage.getUsed()),
@@ -259,19 +507,14 @@ public class HardwareMonitor {
                         usagePercent);
             }
         }
-
-        // Run garbage collection if memory is high
-        if (heapUsagePercent > 80) {
-            System.out.println("⚠️  High memory usage! Running garbage collection...");
-            memoryBean.gc();
-        }
+        return heapUsagePercent;
     }
 
     private static String truncatePoolName(String name) {
         return name.length() > 20 ? name.substring(0, 17) + "..." : name;
     }
 
-    private static String formatBytes(long bytes) {
+    static String formatBytes(long bytes) {
         if (bytes < 1024)
             return bytes + " B";
         int exp = (int) (Math.log(bytes) / Math.log(1024));
@@ -281,56 +524,45 @@ public class HardwareMonitor {
 
     // Disk Monitoring
     private static void startDiskMonitoring() {
-        if (monitoring.get()) {
-            System.out.println("Monitoring already running. Stop first.");
-            return;
-        }
-
         System.out.println("\n--- Starting Disk Monitoring ---");
-        monitoring.set(true);
-
-        Future<?> diskTask = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                monitorDisk();
-            } catch (Exception e) {
-                System.err.println("Error in disk monitoring: " + e.getMessage());
-            }
-        }, 0, 5, TimeUnit.SECONDS);
+        registry.start("diskspace", 0);
+        // After the first space sample, so the first report is not empty
+        startMonitor("disk", 250);
+        startIoSampler();
+    }
 
-        monitoringTasks.add(diskTask);
-        System.out.println("Disk monitoring started! Updating every 5 seconds.");
+    static void sampleDiskSpace() {
+        diskSpace.sample();
+        diskSpace.record();
     }
 
-    private static void monitorDisk() {
+    static void monitorDisk() {
         System.out.println("\n" + "=".repeat(40));
         System.out.println("DISK STATISTICS - " + new Date());
         System.out.println("=".repeat(40));
 
-        File[] roots = File.listRoots();
         boolean lowSpaceWarning = false;
 
-        for (File root : roots) {
-            long total = root.getTotalSpace();
-            long free = root.getFreeSpace();
-            long used = total - free;
-            double usagePercent = (used * 100.0 / total);
-
-            String driveName = root.getAbsolutePath();
-            if (driveName.endsWith("\\")) {
-                driveName = driveName.substring(0, driveName.length() - 1);
-            }
-
-            System.out.printf("Drive %s:\n", driveName);
+        for (DiskSpaceTracker.Mount mount : diskSpace.mounts()) {
+            System.out.printf("Mount %s (%s):\n", mount.path, mount.type);
             System.out.printf("  Total: %8s, Free: %8s, Used: %8s (%5.1f%%)\n",
-                    formatBytes(total),
-                    formatBytes(free),
-                    formatBytes(used),
-                    usagePercent);
+                    formatBytes(mount.total),
+                    formatBytes(mount.free),
+                    formatBytes(mount.used()),
+                    mount.usagePercent);
+            if (mount.growthBytesPerSec != 0) {
+                System.out.printf("  Trend: %s/s, full in %s\n", formatSignedBytes(mount.growthBytesPerSec),
+                        Double.isInfinite(mount.secondsUntilFull)
+                                ? "never" : formatUptime((long) (mount.secondsUntilFull * 1000)));
+            }
 
-            // Warn if disk space is low
-            if (usagePercent > 90) {
+            // Warn if disk space is low or filling up within the hour
+            if (mount.usagePercent > 90) {
                 System.out.println("  ⚠️  LOW DISK SPACE!");
                 lowSpaceWarning = true;
+            } else if (mount.secondsUntilFull < 3600) {
+                System.out.println("  ⚠️  DISK FILLING UP!");
+                lowSpaceWarning = true;
             }
         }
 
@@ -346,7 +578,42 @@ public class HardwareMonitor {
         }
     }
 
+    // Linux I/O rates are sampled every 100ms; the display tasks print the latest rates
+    // collectMetrics only reads; these tasks produce what it exports
+    private static void startMetricSamplers() {
+        startIoSampler();
+        startCgroupSampler();
+        registry.start("diskspace", 0);
+        registry.start("jvmstats", 0);
+    }
+
+    private static void startCgroupSampler() {
+        if (cgroup != null) {
+            registry.start("cgroup", 0);
+        }
+    }
+
+    private static void startIoSampler() {
+        if (ioCollector != null) {
+            registry.start("io", 0);
+        }
+    }
+
     private static void monitorDiskIO() {
+        if (ioCollector != null) {
+            System.out.println("\nDisk I/O Rates:");
+            for (LinuxIoCollector.DeviceStats dev : ioCollector.devices()) {
+                if (!dev.seen) {
+                    continue;
+                }
+                System.out.printf("  %-10s Read: %7.1f IOPS %10s/s  Write: %7.1f IOPS %10s/s  Latency: %6.2fms\n",
+                        dev.name,
+                        dev.readIops, formatBytes((long) dev.readBytesPerSec),
+                        dev.writeIops, formatBytes((long) dev.writeBytesPerSec),
+                        dev.avgLatencyMs);
+            }
+        }
+
         OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
         if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
             com.sun.management.OperatingSystemMXBean sunOsBean = (com.sun.management.OperatingSystemMXBean) osBean;
@@ -363,27 +630,23 @@ public class HardwareMonitor {
 
     // Network Monitoring
     private static void startNetworkMonitoring() {
-        if (monitoring.get()) {
-            System.out.println("Monitoring already running. Stop first.");
-            return;
-        }
-
         System.out.println("\n--- Starting Network Monitoring ---");
-        monitoring.set(true);
-
-        Future<?> networkTask = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                monitorNetwork();
-            } catch (Exception e) {
-                System.err.println("Error in network monitoring: " + e.getMessage());
-            }
-        }, 0, 4, TimeUnit.SECONDS);
+        startMonitor("network", 0);
+        startIoSampler();
+    }
 
-        monitoringTasks.add(networkTask);
-        System.out.println("Network monitoring started! Updating every 4 seconds.");
+    private static double totalNetworkBytesPerSecond() {
+        if (ioCollector == null) {
+            return Double.NaN;
+        }
+        double total = 0;
+        for (LinuxIoCollector.InterfaceStats itf : ioCollector.interfaces()) {
+            total += itf.rxBytesPerSec + itf.txBytesPerSec;
+        }
+        return total;
     }
 
-    private static void monitorNetwork() {
+    static void monitorNetwork() {
         System.out.println("\n" + "=".repeat(40));
         System.out.println("NETWORK STATISTICS - " + new Date());
         System.out.println("=".repeat(40));
@@ -429,6 +692,16 @@ public class HardwareMonitor {
                 System.out.println("No active network interfaces found.");
             }
 
+            if (ioCollector != null) {
+                System.out.println("Network I/O Rates:");
+                for (LinuxIoCollector.InterfaceStats itf : ioCollector.interfaces()) {
+                    System.out.printf("  %-10s RX: %10s/s %8.1f pkt/s  TX: %10s/s %8.1f pkt/s\n",
+                            itf.name,
+                            formatBytes((long) itf.rxBytesPerSec), itf.rxPacketsPerSec,
+                            formatBytes((long) itf.txBytesPerSec), itf.txPacketsPerSec);
+                }
+            }
+
         } catch (SocketException e) {
             System.err.println("Error reading network interfaces: " + e.getMessage());
         }
@@ -436,27 +709,11 @@ public class HardwareMonitor {
 
     // System Information Monitoring
     private static void startSystemInfoMonitoring() {
-        if (monitoring.get()) {
-            System.out.println("Monitoring already running. Stop first.");
-            return;
-        }
-
         System.out.println("\n--- Starting System Information Monitoring ---");
-        monitoring.set(true);
-
-        Future<?> systemTask = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                monitorSystemInfo();
-            } catch (Exception e) {
-                System.err.println("Error in system info monitoring: " + e.getMessage());
-            }
-        }, 0, 10, TimeUnit.SECONDS);
-
-        monitoringTasks.add(systemTask);
-        System.out.println("System info monitoring started! Updating every 10 seconds.");
+        startMonitor("system", 0);
     }
 
-    private static void monitorSystemInfo() {
+    static void monitorSystemInfo() {
         OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
         RuntimeMXBean runtimeBean = ManagementFactory.getRuntimeMXBean();
 
@@ -520,113 +777,564 @@ public class HardwareMonitor {
         }
     }
 
-    // Comprehensive Monitoring
-    private static void startComprehensiveMonitoring() {
-        if (monitoring.get()) {
-            System.out.println("Monitoring already running. Stop first.");
+    // Process Table Monitoring
+    private static void startProcessTableMonitoring() {
+        System.out.println("\n--- Starting Process Table Monitoring ---");
+        startMonitor("processes", 0);
+    }
+
+    private static void monitorProcesses() {
+        processTable.refresh();
+        metrics.record("process_count", processTable.size());
+        metrics.record("process_table_refresh_millis", processTable.lastRefreshMillis());
+
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println("PROCESS TABLE - " + new Date());
+        System.out.println("=".repeat(40));
+        System.out.printf("Processes: %d (refreshed in %.1f ms, %d stat reads, idle ones every %d refreshes)\n",
+                processTable.size(), processTable.lastRefreshMillis(), processTable.lastStatReads(),
+                processTable.idleStride());
+        System.out.printf("%8s %7s %9s %8s %10s %10s  %s\n",
+                "PID", "CPU%", "RSS", "THREADS", "READ/s", "WRITE/s", "COMMAND");
+        for (ProcessTable.Entry entry : processTable.top(15, ProcessTable.SortKey.CPU)) {
+            // A process seen for the first time has no interval to measure CPU over yet
+            String cpu = Double.isNaN(entry.cpuPercent) ? "n/a" : String.format("%.1f", entry.cpuPercent);
+            System.out.printf("%8d %7s %9s %8d %10s %10s  %s\n",
+                    entry.pid, cpu, formatBytes(entry.rssBytes), entry.threads,
+                    formatBytes((long) entry.readBytesPerSec), formatBytes((long) entry.writeBytesPerSec),
+                    truncateCommand(entry.command));
+        }
+    }
+
+    private static String truncateCommand(String command) {
+        return command.length() > 40 ? "..." + command.substring(command.length() - 37) : command;
+    }
+
+    // Container (cgroup) Monitoring
+    private static void startContainerMonitoring() {
+        System.out.println("\n--- Starting Container (cgroup) Monitoring ---");
+        if (cgroup == null) {
+            System.out.println("No readable cgroup found; container monitoring is Linux-only.");
             return;
         }
+        startCgroupSampler();
+        // One second in, so the first report already has a CPU rate
+        startMonitor("container", 1000);
+    }
 
-        System.out.println("\n--- Starting Comprehensive Hardware Monitoring ---");
-        monitoring.set(true);
+    private static void monitorContainer() {
+        CgroupMetrics.Snapshot container = cgroup.latest();
+        if (container == null) {
+            System.out.println("\nWaiting for the first cgroup sample...");
+            return;
+        }
+
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println("CONTAINER (CGROUP " + (cgroup.v2 ? "v2" : "v1") + ") - " + new Date());
+        System.out.println("=".repeat(40));
+        if (Double.isNaN(container.cpuLimitCores)) {
+            System.out.printf("CPU Limit: none (host has %d processors)\n", Runtime.getRuntime().availableProcessors());
+        } else {
+            System.out.printf("CPU Limit: %.2f cores\n", container.cpuLimitCores);
+        }
+        System.out.printf("CPU Usage: %.2f cores (%.1f%% of limit)\n",
+                container.cpuUsageCores, container.cpuUsagePercentOfLimit());
+        System.out.printf("CPU Throttling: %.1f%% of periods, %.1f ms throttled per second\n",
+                container.cpuThrottledPercent, container.cpuThrottledMillisPerSec);
+        if (container.memoryLimit > 0) {
+            System.out.printf("Memory: %s / %s (%.1f%% of limit)\n",
+                    formatBytes(container.memoryUsed), formatBytes(container.memoryLimit),
+                    container.memoryUsagePercentOfLimit());
+        } else {
+            System.out.printf("Memory: %s (no limit)\n", formatBytes(container.memoryUsed));
+        }
+        System.out.printf("Pressure (avg10): memory some %.2f%%, full %.2f%%; cpu some %.2f%%\n",
+                container.memoryPressureSome, container.memoryPressureFull, container.cpuPressureSome);
+
+        if (container.cpuThrottledPercent > 20) {
+            System.out.println("⚠️  CPU THROTTLING! Latency spikes likely; raise the CPU limit or reduce load.");
+        }
+    }
 
-        // Clear any existing tasks
-        monitoringTasks.clear();
+    // JVM Internals Monitoring
+    private static void startJvmInternalsMonitoring() {
+        System.out.println("\n--- Starting JVM Internals Monitoring ---");
+        registry.start("jvmstats", 0);
+        // One second in, so the first report already has rates
+        startMonitor("jvm", 1000);
+    }
 
-        // Start all monitoring tasks with different intervals
-        Future<?> cpuTask = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                monitorCPU();
-            } catch (Exception e) {
-                e.printStackTrace();
+    private static void monitorJvmInternals() {
+        JvmInternalsSampler.Snapshot jvm = jvmInternals.latest();
+        if (jvm == null) {
+            System.out.println("\nWaiting for the first JVM internals sample...");
+            return;
+        }
+
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println("JVM INTERNALS - " + new Date());
+        System.out.println("=".repeat(40));
+        if (jvm.safepointSource == null) {
+            System.out.println("Safepoints: n/a (start JFR streaming, or run with");
+            System.out.println("  --add-exports java.management/sun.management=ALL-UNNAMED)");
+        } else {
+            System.out.printf("Safepoints: %.2f/s, %.2f ms/s at safepoint (%s)\n",
+                    jvm.safepointsPerSec, jvm.safepointMillisPerSec, jvm.safepointSource);
+        }
+        System.out.printf("JIT Compilation: %.1f ms/s (total %d ms)\n",
+                jvm.jitMillisPerSec, jvm.jitTotalMillis);
+        System.out.printf("Class Loading: %.1f classes/s\n", jvm.classesLoadedPerSec);
+
+        JvmInternalsSampler.PoolRate metaspace = jvm.metaspace;
+        System.out.printf("Metaspace: %s used, %s committed, growth %s/s\n",
+                formatBytes(metaspace.used), formatBytes(metaspace.capacity), formatSignedBytes(metaspace.bytesPerSec));
+
+        System.out.println("\nCode Cache:");
+        for (JvmInternalsSampler.PoolRate segment : jvm.codeCache) {
+            System.out.printf("  %-20s: %8s / %8s, growth %s/s\n",
+                    truncatePoolName(segment.name), formatBytes(segment.used), formatBytes(segment.capacity),
+                    formatSignedBytes(segment.bytesPerSec));
+        }
+
+        System.out.println("\nBuffer Pools:");
+        for (JvmInternalsSampler.PoolRate buffer : jvm.bufferPools) {
+            System.out.printf("  %-20s: %6d buffers, %8s used / %8s capacity, growth %s/s\n",
+                    truncatePoolName(buffer.name), buffer.count, formatBytes(buffer.used),
+                    formatBytes(buffer.capacity), formatSignedBytes(buffer.bytesPerSec));
+        }
+    }
+
+    private static String formatSignedBytes(double bytes) {
+        return (bytes < 0 ? "-" : "+") + formatBytes((long) Math.abs(bytes));
+    }
+
+    // JFR Event Streaming Monitoring
+    private static void startJfrMonitoring() {
+        System.out.println("\n--- Starting JFR Event Streaming Monitoring ---");
+        try {
+            startMonitor("jfr", 0);
+        } catch (Exception e) {
+            System.err.println("JFR streaming not available: " + e.getMessage());
+        }
+    }
+
+    // Silent Metrics Collection (feeds exporters without printing)
+    private static void collectMetrics() {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean sunOsBean = (com.sun.management.OperatingSystemMXBean) osBean;
+            metrics.record("cpu_system_usage_percent", sunOsBean.getCpuLoad() * 100);
+            metrics.record("cpu_process_usage_percent", sunOsBean.getProcessCpuLoad() * 100);
+            metrics.record("memory_physical_used_bytes",
+                    sunOsBean.getTotalMemorySize() - sunOsBean.getFreeMemorySize());
+            metrics.record("memory_swap_used_bytes",
+                    sunOsBean.getTotalSwapSpaceSize() - sunOsBean.getFreeSwapSpaceSize());
+        }
+        metrics.record("cpu_load_average", osBean.getSystemLoadAverage());
+
+        MemoryUsage heapUsage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        metrics.record("jvm_heap_used_bytes", heapUsage.getUsed());
+        metrics.record("jvm_heap_max_bytes", heapUsage.getMax());
+        if (heapUsage.getMax() > 0) {
+            metrics.record("jvm_heap_usage_percent", heapUsage.getUsed() * 100.0 / heapUsage.getMax());
+        }
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            metrics.record(MetricHistory.key("jvm_memory_pool_used_bytes", "pool", pool.getName()),
+                    pool.getUsage().getUsed());
+        }
+
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            metrics.record(MetricHistory.key("jvm_gc_collections_total", "gc", gcBean.getName()),
+                    gcBean.getCollectionCount());
+            metrics.record(MetricHistory.key("jvm_gc_time_millis_total", "gc", gcBean.getName()),
+                    gcBean.getCollectionTime());
+        }
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        metrics.record("jvm_threads_live", threadBean.getThreadCount());
+        metrics.record("jvm_threads_peak", threadBean.getPeakThreadCount());
+        metrics.record("jvm_threads_started_total", threadBean.getTotalStartedThreadCount());
+
+
+        recordSelfOverhead();
+
+        if (profiler.isRunning()) {
+            metrics.record("profiler_overhead_percent", profiler.overheadPercent());
+            metrics.record("profiler_sample_rate_hz", profiler.effectiveHz());
+        }
+    }
+
+    // The monitor's own cost: per-job run time, and CPU used by all registry jobs and service threads
+    private static void recordSelfOverhead() {
+        long cpuNanos = 0;
+        for (MonitorRegistry.Monitor monitor : registry.monitors()) {
+            if (monitor.runs() > 0) {
+                metrics.record(MetricHistory.key("monitor_job_duration_millis", "monitor", monitor.name),
+                        monitor.lastRunMillis());
+                metrics.record(MetricHistory.key("monitor_job_cpu_seconds_total", "monitor", monitor.name),
+                        monitor.totalCpuNanos() / 1e9);
             }
-        }, 0, 2, TimeUnit.SECONDS);
+            cpuNanos += monitor.totalCpuNanos();
+        }
+        cpuNanos += serviceCpuNanos();
 
-        Future<?> memoryTask = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                monitorMemory();
-            } catch (Exception e) {
-                e.printStackTrace();
+        long now = System.nanoTime();
+        if (lastSelfSampleNanos != 0 && now > lastSelfSampleNanos) {
+            metrics.record("monitor_self_cpu_percent",
+                    (cpuNanos - lastSelfCpuNanos) * 100.0 / (now - lastSelfSampleNanos));
+        }
+        lastSelfCpuNanos = cpuNanos;
+        lastSelfSampleNanos = now;
+    }
+
+    // Cumulative CPU of the service threads. Each thread's time is added as it grows, so the total
+    // keeps what a thread used after it exits.
+    private static long serviceCpuNanos() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Set<Long> alive = new HashSet<>();
+        for (ThreadInfo info : threadBean.getThreadInfo(threadBean.getAllThreadIds())) {
+            if (info == null || !isServiceThread(info.getThreadName())) {
+                continue;
             }
-        }, 1, 3, TimeUnit.SECONDS);
+            long cpu = threadBean.getThreadCpuTime(info.getThreadId());
+            if (cpu >= 0) {
+                Long previous = serviceThreadCpuNanos.put(info.getThreadId(), cpu);
+                serviceCpuNanos += cpu - (previous == null ? 0 : previous);
+                alive.add(info.getThreadId());
+            }
+        }
+        serviceThreadCpuNanos.keySet().retainAll(alive);
+        return serviceCpuNanos;
+    }
 
-        Future<?> diskTask = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                monitorDisk();
-            } catch (Exception e) {
-                e.printStackTrace();
+    private static boolean isServiceThread(String name) {
+        for (String prefix : SERVICE_THREAD_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
             }
-        }, 2, 5, TimeUnit.SECONDS);
+        }
+        return false;
+    }
+
+    // Prometheus Endpoint
+    private static void startPrometheusEndpoint() {
+        System.out.println("\n--- Starting Prometheus Metrics Endpoint ---");
+        try {
+            startMonitor("prometheus", 0);
+        } catch (Exception e) {
+            System.err.println("Could not start endpoint: " + e.getMessage());
+            return;
+        }
+        startMonitor("metrics", 0);
+        startMetricSamplers();
+        System.out.printf("Scrape with: curl http://localhost:%d/metrics\n", prometheusExporter.port());
+    }
 
-        Future<?> networkTask = scheduler.scheduleAtFixedRate(() -> {
+    // Terminal Dashboard
+    private static void runDashboard(Scanner scanner) {
+        // Printing monitors would scroll the dashboard away; the silent collector feeds it instead.
+        // Whatever was running before is put back when the dashboard closes.
+        List<String> paused = new ArrayList<>();
+        for (String name : DISPLAY_MONITORS) {
+            if (registry.stop(name)) {
+                paused.add(name);
+            }
+        }
+        boolean startedMetrics = registry.start("metrics", 0);
+        startMetricSamplers();
+
+        TerminalDashboard dashboard = TerminalDashboard.forConsole(metrics, alertEngine, ioCollector);
+        dashboard.open();
+        consoleAlerts.divertTo(dashboard);
+        ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+                runnable -> new Thread(runnable, "dashboard-refresh"));
+        refresher.scheduleAtFixedRate(() -> {
             try {
-                monitorNetwork();
+                dashboard.refresh();
             } catch (Exception e) {
-                e.printStackTrace();
+                System.err.println("Error in dashboard refresh: " + e.getMessage());
             }
-        }, 3, 4, TimeUnit.SECONDS);
+        }, 0, 500, TimeUnit.MILLISECONDS);
 
-        Future<?> systemTask = scheduler.scheduleAtFixedRate(() -> {
-            try {
-                monitorSystemInfo();
-            } catch (Exception e) {
-                e.printStackTrace();
+        scanner.nextLine();
+        scanner.nextLine();
+        refresher.shutdownNow();
+        try {
+            refresher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        consoleAlerts.divertTo(null);
+        dashboard.close();
+
+        if (startedMetrics) {
+            registry.stop("metrics");
+        }
+        for (String name : paused) {
+            registry.start(name, 0);
+        }
+        if (!paused.isEmpty()) {
+            System.out.println("Resumed: " + String.join(", ", paused));
+        }
+        stopIdleSamplers();
+    }
+
+    // Multi-Node Aggregation
+    private static void multiNodeMenu(Scanner scanner) {
+        System.out.println("\n--- Multi-Node Aggregation ---");
+        System.out.println("1. Start Aggregator (port " + AGGREGATOR_PORT + ")");
+        System.out.println("2. Push This JVM's Metrics to an Aggregator");
+        System.out.println("3. Simulate Local Agents");
+        System.out.println("4. Show Aggregated Nodes");
+        System.out.println("5. Stop Agents and Aggregator");
+        int choice = getIntInput(scanner, "Choose an option (1-5): ");
+
+        switch (choice) {
+            case 1:
+                try {
+                    startMonitor("aggregator", 0);
+                    System.out.printf("Aggregated metrics: curl http://localhost:%d/metrics\n", PROMETHEUS_PORT + 1);
+                } catch (Exception e) {
+                    System.err.println("Could not start aggregator: " + e.getMessage());
+                }
+                break;
+            case 2:
+                System.out.print("Aggregator host:port (e.g. localhost:" + AGGREGATOR_PORT + "): ");
+                InetSocketAddress address = parseAddress(scanner.next().trim());
+                MetricAgent agent = new MetricAgent(ManagementFactory.getRuntimeMXBean().getName(), address);
+                agents.add(agent);
+                metrics.addListener(agent);
+                registry.start("metrics", 0);
+                startMetricSamplers();
+                registry.start("agents", 0);
+                System.out.println("Pushing metrics as node " + agent.nodeName() + " to " + address);
+                break;
+            case 3:
+                int count = getIntInput(scanner, "Number of simulated agents: ");
+                startSimulatedAgents(count);
+                break;
+            case 4:
+                showAggregatedNodes();
+                break;
+            case 5:
+                registry.stop("simulation");
+                registry.stop("agents");
+                simulatedAgents.clear();
+                for (MetricAgent each : agents) {
+                    metrics.removeListener(each);
+                    each.close();
+                }
+                agents.clear();
+                registry.stop("aggregator");
+                System.out.println("Agents and aggregator stopped.");
+                break;
+            default:
+                System.out.println("Invalid option! Please try again.");
+        }
+    }
+
+    private static InetSocketAddress parseAddress(String hostPort) {
+        int colon = hostPort.lastIndexOf(':');
+        if (colon < 0) {
+            return new InetSocketAddress(hostPort, AGGREGATOR_PORT);
+        }
+        return new InetSocketAddress(hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1)));
+    }
+
+    // Each simulated agent pushes a random walk for a handful of series, like a small JVM would.
+    // Agents join the one "simulation" task, so repeated runs add agents rather than tasks.
+    private static void startSimulatedAgents(int count) {
+        InetSocketAddress address = new InetSocketAddress("localhost", AGGREGATOR_PORT);
+        List<MetricAgent> started = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MetricAgent agent = new MetricAgent("sim-" + (agents.size() + i + 1), address);
+            double[] values = new double[SIMULATED_KEYS.length];
+            for (int k = 0; k < values.length; k++) {
+                values[k] = (SIMULATED_MIN[k] + SIMULATED_MAX[k]) / 2;
+            }
+            simulatedAgents.put(agent, values);
+            started.add(agent);
+        }
+        agents.addAll(started);
+        registry.start("simulation", 0);
+        registry.start("agents", 0);
+        System.out.println("Started " + count + " simulated agents sending to " + address
+                + " (" + simulatedAgents.size() + " in total)");
+    }
+
+    private static void simulateAgents() {
+        long now = System.currentTimeMillis();
+        Random random = ThreadLocalRandom.current();
+        for (Map.Entry<MetricAgent, double[]> entry : simulatedAgents.entrySet()) {
+            double[] values = entry.getValue();
+            for (int k = 0; k < SIMULATED_KEYS.length; k++) {
+                // Step relative to each series' own range: percentages, thread counts and bytes differ by orders of magnitude
+                double step = random.nextGaussian() * (SIMULATED_MAX[k] - SIMULATED_MIN[k]) * 0.02;
+                values[k] = Math.max(SIMULATED_MIN[k], Math.min(SIMULATED_MAX[k], values[k] + step));
+                entry.getKey().offer(SIMULATED_KEYS[k], now, values[k]);
+            }
+        }
+    }
+
+    private static void showAggregatedNodes() {
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println("AGGREGATED NODES - " + new Date());
+        System.out.println("=".repeat(40));
+        if (!aggregator.isRunning()) {
+            System.out.println("Aggregator is not running on this JVM.");
+        }
+        List<MetricAggregator.NodeStats> nodes = new ArrayList<>(aggregator.nodes());
+        nodes.sort(Comparator.comparing(n -> n.node));
+        for (MetricAggregator.NodeStats node : nodes) {
+            double cpu = aggregator.store().latest(
+                    MetricAggregator.withNodeLabel("cpu_process_usage_percent", node.node), Double.NaN);
+            System.out.printf("  %-30s %-12s samples: %10d  process CPU: %6.2f%%\n",
+                    truncateThreadName(node.node), node.connected ? "CONNECTED" : "gone",
+                    node.samples, cpu);
+        }
+        System.out.printf("Nodes: %d, total samples merged: %d, series: %d\n",
+                nodes.size(), aggregator.totalSamples(), aggregator.store().all().size());
+    }
+
+    // Continuous Profiler
+    private static void profilerMenu(Scanner scanner) {
+        System.out.println("\n--- Continuous Profiler ---");
+        System.out.println("1. Start Sampling (" + PROFILER_HZ + " Hz)");
+        System.out.println("2. Show Hottest Frames");
+        System.out.println("3. Export Collapsed Stacks");
+        System.out.println("4. Export HTML Flame Graph");
+        System.out.println("5. Stop and Reset");
+        int choice = getIntInput(scanner, "Choose an option (1-5): ");
+
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        try {
+            switch (choice) {
+                case 1:
+                    startMonitor("profiler", 0);
+                    break;
+                case 2:
+                    showHottestFrames();
+                    break;
+                case 3:
+                    Path collapsed = Paths.get("profile-" + stamp + ".collapsed");
+                    profiler.writeCollapsed(collapsed);
+                    System.out.println("Wrote " + collapsed.toAbsolutePath() + " (feed to flamegraph.pl or speedscope)");
+                    break;
+                case 4:
+                    Path html = Paths.get("profile-" + stamp + ".html");
+                    profiler.writeFlameGraph(html);
+                    System.out.println("Wrote " + html.toAbsolutePath());
+                    break;
+                case 5:
+                    registry.stop("profiler");
+                    profiler.reset();
+                    System.out.println("Profiler stopped and samples discarded.");
+                    break;
+                default:
+                    System.out.println("Invalid option! Please try again.");
             }
-        }, 4, 10, TimeUnit.SECONDS);
+        } catch (IOException e) {
+            System.err.println("Could not write profile: " + e.getMessage());
+        }
+    }
 
-        monitoringTasks.add(cpuTask);
-        monitoringTasks.add(memoryTask);
-        monitoringTasks.add(diskTask);
-        monitoringTasks.add(networkTask);
-        monitoringTasks.add(systemTask);
+    private static void showHottestFrames() {
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println("HOTTEST FRAMES (self samples) - " + new Date());
+        System.out.println("=".repeat(40));
+        long samples = profiler.samples();
+        System.out.printf("Samples: %d, rate: %.1f Hz, sampler overhead: %.3f%% of one core\n",
+                samples, profiler.effectiveHz(), profiler.overheadPercent());
+        for (Map.Entry<String, Long> frame : profiler.topSelfFrames(15)) {
+            System.out.printf("  %8d  %s\n", frame.getValue(), frame.getKey());
+        }
+        if (samples == 0) {
+            System.out.println("No samples yet - start the profiler first.");
+        }
+    }
+
+    // Comprehensive Monitoring
+    private static void startComprehensiveMonitoring() {
+        System.out.println("\n--- Starting Comprehensive Hardware Monitoring ---");
+
+        // Stagger the first runs so the reports do not all land at once
+        String[] names = { "cpu", "memory", "disk", "network", "system" };
+        for (int i = 0; i < names.length; i++) {
+            startMonitor(names[i], i * 1000L);
+        }
+        startIoSampler();
+        startCgroupSampler();
+        registry.start("diskspace", 0);
 
         System.out.println("\n✅ All hardware monitoring started!");
-        System.out.println("Monitoring Intervals:");
-        System.out.println("  CPU: Every 2 seconds");
-        System.out.println("  Memory: Every 3 seconds");
-        System.out.println("  Disk: Every 5 seconds");
-        System.out.println("  Network: Every 4 seconds");
-        System.out.println("  System Info: Every 10 seconds");
         System.out.println("\nPress Enter to stop monitoring...");
     }
 
-    private static void stopAllMonitoring() {
-        if (!monitoring.get()) {
-            System.out.println("No monitoring is currently running.");
+    private static void stopMonitor(Scanner scanner) {
+        System.out.println("\nMonitors:");
+        List<MonitorRegistry.Monitor> monitors = registry.monitors();
+        for (int i = 0; i < monitors.size(); i++) {
+            MonitorRegistry.Monitor monitor = monitors.get(i);
+            boolean running = registry.isRunning(monitor.name);
+            System.out.printf("  %d. %-22s %s%s\n", i + 1, monitor.label,
+                    running ? "RUNNING" : "stopped",
+                    running && monitor.isPeriodic() ? " (every " + formatInterval(monitor.intervalMillis()) + ")" : "");
+        }
+
+        int choice = getIntInput(scanner, "Monitor to stop: ");
+        if (choice < 1 || choice > monitors.size()) {
+            System.out.println("Invalid option! Please try again.");
             return;
         }
 
-        System.out.println("\n--- Stopping All Monitoring ---");
-        monitoring.set(false);
+        MonitorRegistry.Monitor monitor = monitors.get(choice - 1);
+        if (registry.stop(monitor.name)) {
+            System.out.println(monitor.label + " monitoring stopped.");
+        } else {
+            System.out.println(monitor.label + " monitoring is not running.");
+        }
+        stopIdleSamplers();
+    }
 
-        int stoppedCount = 0;
-        for (Future<?> task : monitoringTasks) {
-            if (!task.isDone() && !task.isCancelled()) {
-                task.cancel(true);
-                stoppedCount++;
-            }
+    // Stops each shared sampler once none of the monitors reading its output are running
+    private static void stopIdleSamplers() {
+        // The I/O sampler serves the disk and network displays and the metrics collector
+        if (!registry.isRunning("disk") && !registry.isRunning("network") && !registry.isRunning("metrics")) {
+            registry.stop("io");
         }
+        if (!registry.isRunning("cpu") && !registry.isRunning("memory") && !registry.isRunning("container")
+                && !registry.isRunning("metrics")) {
+            registry.stop("cgroup");
+        }
+        if (!registry.isRunning("disk") && !registry.isRunning("metrics")) {
+            registry.stop("diskspace");
+        }
+        if (!registry.isRunning("jvm") && !registry.isRunning("metrics")) {
+            registry.stop("jvmstats");
+        }
+    }
 
-        monitoringTasks.clear();
+    private static void stopAllMonitoring() {
+        if (!registry.isAnyRunning()) {
+            System.out.println("No monitoring is currently running.");
+            return;
+        }
+
+        System.out.println("\n--- Stopping All Monitoring ---");
+        int stoppedCount = registry.stopAll();
         System.out.println("Stopped " + stoppedCount + " monitoring tasks.");
         System.out.println("All hardware monitoring has been stopped.");
     }
 
     private static void shutdown() {
         System.out.println("\nShutting down Hardware Monitor...");
-        stopAllMonitoring();
+        if (registry != null) {
+            stopAllMonitoring();
+            registry.shutdown();
+        }
 
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdown();
-            try {
-                if (!scheduler.awaitTermination(3, TimeUnit.SECONDS)) {
-                    System.out.println("Forcing shutdown...");
-                    scheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                scheduler.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+        if (ioCollector != null) {
+            ioCollector.close();
         }
 
         System.out.println("Hardware Monitor shutdown complete.");
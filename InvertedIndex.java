@@ -0,0 +1,160 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.*;
+
+// Term -> postings index over product names, maintained incrementally as
+// products are added. A query costs roughly the size of the postings it reads,
+// not the catalog size: AND walks the rarest term and skips through the rest,
+// OR merges the lists with a heap.
+//
+// Products are identified by their insertion ordinal (0, 1, 2, ...), which is
+// the position IntelligentSearchSystem gives them in its product list. Not
+// thread-safe; callers serialise addProduct against searches.
+public class InvertedIndex {
+    private final Map<String, PostingList> terms = new HashMap<>();
+    private int nextId;
+    // Token counts per product, for BM25 length normalisation
+    private int[] lengths = new int[1024];
+    private long totalLength;
+
+    public void add(int id, String name) {
+        if (id < nextId) {
+            throw new IllegalArgumentException("Product ids must increase: " + id + " after " + (nextId - 1));
+        }
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        List<String> tokens = Tokenizer.tokens(name);
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        if (id >= lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(lengths.length * 2, id + 1));
+        }
+        lengths[id] = tokens.size();
+        totalLength += tokens.size();
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            terms.computeIfAbsent(term.getKey(), t -> new PostingList()).add(id, term.getValue());
+        }
+        nextId = id + 1;
+    }
+
+    public int documentCount() {
+        return nextId;
+    }
+
+    public int documentLength(int id) {
+        return lengths[id];
+    }
+
+    public double averageDocumentLength() {
+        return nextId == 0 ? 0 : (double) totalLength / nextId;
+    }
+
+    public int termCount() {
+        return terms.size();
+    }
+
+    public int documentFrequency(String term) {
+        PostingList postings = terms.get(term);
+        return postings == null ? 0 : postings.size();
+    }
+
+    public PostingList postings(String term) {
+        return terms.get(term);
+    }
+
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (PostingList postings : terms.values()) {
+            bytes += postings.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    // Products whose name contains every term of the query, in id order
+    public int[] and(String query) {
+        List<String> queryTerms = distinctTerms(query);
+        if (queryTerms.isEmpty()) {
+            return new int[0];
+        }
+        PostingList.Cursor[] cursors = new PostingList.Cursor[queryTerms.size()];
+        List<PostingList> lists = new ArrayList<>();
+        for (String term : queryTerms) {
+            PostingList postings = terms.get(term);
+            if (postings == null) {
+                return new int[0];
+            }
+            lists.add(postings);
+        }
+        // Rarest first: it drives the intersection and the others only skip
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = lists.get(i).cursor();
+        }
+
+        int[] result = new int[Math.min(16, lists.get(0).size())];
+        int count = 0;
+        int doc = cursors[0].next();
+        while (doc != PostingList.NO_MORE_DOCS) {
+            int next = doc;
+            for (int i = 1; i < cursors.length && next == doc; i++) {
+                next = cursors[i].advance(doc);
+            }
+            if (next == PostingList.NO_MORE_DOCS) {
+                break;
+            }
+            if (next == doc) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, Math.max(16, count * 2));
+                }
+                result[count++] = doc;
+                doc = cursors[0].next();
+            } else {
+                doc = cursors[0].advance(next);
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Products whose name contains any term of the query, in id order
+    public int[] or(String query) {
+        return or(distinctTerms(query));
+    }
+
+    // Union over already-normalised terms, e.g. the spelling variants a fuzzy lookup found
+    public int[] or(Collection<String> queryTerms) {
+        PriorityQueue<PostingList.Cursor> heap = new PriorityQueue<>(Comparator.comparingInt(PostingList.Cursor::doc));
+        int upperBound = 0;
+        for (String term : queryTerms) {
+            PostingList postings = terms.get(term);
+            if (postings != null) {
+                PostingList.Cursor cursor = postings.cursor();
+                cursor.next();
+                heap.add(cursor);
+                upperBound += postings.size();
+            }
+        }
+
+        int[] result = new int[Math.min(16, upperBound)];
+        int count = 0;
+        int last = -1;
+        while (!heap.isEmpty()) {
+            PostingList.Cursor cursor = heap.poll();
+            int doc = cursor.doc();
+            if (doc != last) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, Math.max(16, count * 2));
+                }
+                result[count++] = doc;
+                last = doc;
+            }
+            if (cursor.next() != PostingList.NO_MORE_DOCS) {
+                heap.add(cursor);
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static List<String> distinctTerms(String query) {
+        return new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokens(query)));
+    }
+}
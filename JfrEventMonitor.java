@@ -0,0 +1,118 @@
+package com.example.demo.threads;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+
+// Event-driven collector: the JVM pushes CPU, GC, thread and allocation events
+// through a JFR RecordingStream instead of HardwareMonitor polling MXBeans.
+class JfrEventMonitor {
+    private final Map<String, Double> threadLoads = new ConcurrentHashMap<>();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder safepoints = new LongAdder();
+    private final LongAdder safepointNanos = new LongAdder();
+    private long lastCpuEventNanos;
+    private RecordingStream stream;
+
+    synchronized boolean isRunning() {
+        return stream != null;
+    }
+
+    synchronized void start(Duration period) {
+        if (stream != null) {
+            return;
+        }
+
+        stream = new RecordingStream();
+        stream.enable("jdk.CPULoad").withPeriod(period);
+        stream.enable("jdk.ThreadCPULoad").withPeriod(period);
+        stream.enable("jdk.GarbageCollection");
+        stream.enable("jdk.GCHeapSummary");
+        stream.enable("jdk.ObjectAllocationSample").with("throttle", "150/s");
+        stream.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ofMillis(20));
+        stream.enable("jdk.SafepointBegin");
+
+        stream.onEvent("jdk.CPULoad", this::onCpuLoad);
+        stream.onEvent("jdk.ThreadCPULoad", this::onThreadCpuLoad);
+        stream.onEvent("jdk.GarbageCollection", this::onGarbageCollection);
+        stream.onEvent("jdk.GCHeapSummary", this::onHeapSummary);
+        stream.onEvent("jdk.ObjectAllocationSample", this::onAllocationSample);
+        stream.onEvent("jdk.JavaMonitorEnter", this::onMonitorEnter);
+        stream.onEvent("jdk.SafepointBegin", event -> {
+            safepoints.increment();
+            safepointNanos.add(event.getDuration().toNanos());
+        });
+
+        lastCpuEventNanos = System.nanoTime();
+        stream.startAsync();
+    }
+
+    synchronized void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+        threadLoads.clear();
+        allocatedBytes.reset();
+    }
+
+    // Cumulative while streaming, like the HotSpot counters they stand in for
+    long safepointCount() {
+        return safepoints.sum();
+    }
+
+    long safepointNanos() {
+        return safepointNanos.sum();
+    }
+
+    private void onCpuLoad(RecordedEvent event) {
+        double systemCpuLoad = event.getFloat("machineTotal") * 100;
+        double processCpuLoad = (event.getFloat("jvmUser") + event.getFloat("jvmSystem")) * 100;
+        HardwareMonitor.reportCPU(systemCpuLoad, processCpuLoad);
+
+        long now = System.nanoTime();
+        double seconds = Math.max((now - lastCpuEventNanos) / 1e9, 1e-3);
+        lastCpuEventNanos = now;
+        double allocationRate = allocatedBytes.sumThenReset() / seconds;
+        HardwareMonitor.reportAllocationRate(allocationRate);
+
+        HardwareMonitor.reportTopThreadLoads(threadLoads);
+        threadLoads.clear();
+    }
+
+    private void onThreadCpuLoad(RecordedEvent event) {
+        RecordedThread thread = event.getThread("eventThread");
+        if (thread == null) {
+            return;
+        }
+        String name = thread.getJavaName() != null ? thread.getJavaName() : thread.getOSName();
+        double load = (event.getFloat("user") + event.getFloat("system")) * 100;
+        threadLoads.merge(name, load, Double::sum);
+    }
+
+    private void onGarbageCollection(RecordedEvent event) {
+        HardwareMonitor.reportGarbageCollection(
+                event.getString("name"),
+                event.getString("cause"),
+                event.getDuration().toNanos() / 1_000_000.0,
+                event.getDuration("longestPause").toNanos() / 1_000_000.0);
+    }
+
+    private void onHeapSummary(RecordedEvent event) {
+        HardwareMonitor.metrics.record("jvm_heap_used_bytes", event.getLong("heapUsed"));
+    }
+
+    private void onAllocationSample(RecordedEvent event) {
+        allocatedBytes.add(event.getLong("weight"));
+    }
+
+    private void onMonitorEnter(RecordedEvent event) {
+        HardwareMonitor.metrics.record("jvm_monitor_blocked_millis",
+                event.getDuration().toNanos() / 1_000_000.0);
+    }
+}
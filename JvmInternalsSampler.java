@@ -0,0 +1,202 @@
+package com.example.demo.threads;
+
+import java.lang.management.*;
+import java.lang.reflect.Method;
+import java.util.*;
+
+// Turns the JVM's cumulative counters (safepoints, JIT time, code cache,
+// metaspace, buffer pools, class loading) into per-second rates between samples.
+// Rates are deltas since the previous sample(), so one periodic task should own
+// it; everyone else reads the immutable Snapshot it publishes.
+class JvmInternalsSampler {
+    static final class PoolRate {
+        final String name;
+        final long used;
+        final long capacity;
+        final long count;
+        final double bytesPerSec;
+
+        PoolRate(String name, long used, long capacity, long count, double bytesPerSec) {
+            this.name = name;
+            this.used = used;
+            this.capacity = capacity;
+            this.count = count;
+            this.bytesPerSec = bytesPerSec;
+        }
+    }
+
+    static final class Snapshot {
+        final String safepointSource;
+        final double safepointsPerSec;
+        final double safepointMillisPerSec;
+        final double jitMillisPerSec;
+        final long jitTotalMillis;
+        final double classesLoadedPerSec;
+        final PoolRate metaspace;
+        final List<PoolRate> codeCache;
+        final List<PoolRate> bufferPools;
+
+        private Snapshot(String safepointSource, double safepointsPerSec, double safepointMillisPerSec,
+                double jitMillisPerSec, long jitTotalMillis, double classesLoadedPerSec, PoolRate metaspace,
+                List<PoolRate> codeCache, List<PoolRate> bufferPools) {
+            this.safepointSource = safepointSource;
+            this.safepointsPerSec = safepointsPerSec;
+            this.safepointMillisPerSec = safepointMillisPerSec;
+            this.jitMillisPerSec = jitMillisPerSec;
+            this.jitTotalMillis = jitTotalMillis;
+            this.classesLoadedPerSec = classesLoadedPerSec;
+            this.metaspace = metaspace;
+            this.codeCache = codeCache;
+            this.bufferPools = bufferPools;
+        }
+
+        void record(MetricHistory metrics) {
+            metrics.record("jvm_safepoints_per_second", safepointsPerSec);
+            metrics.record("jvm_safepoint_time_millis_per_second", safepointMillisPerSec);
+            metrics.record("jvm_jit_compile_millis_per_second", jitMillisPerSec);
+            metrics.record("jvm_classes_loaded_per_second", classesLoadedPerSec);
+            metrics.record("jvm_metaspace_used_bytes", metaspace.used);
+            metrics.record("jvm_metaspace_growth_bytes_per_second", metaspace.bytesPerSec);
+            for (PoolRate segment : codeCache) {
+                metrics.record(MetricHistory.key("jvm_code_cache_used_bytes", "segment", segment.name), segment.used);
+            }
+            for (PoolRate buffer : bufferPools) {
+                metrics.record(MetricHistory.key("jvm_buffer_pool_used_bytes", "pool", buffer.name), buffer.used);
+                metrics.record(MetricHistory.key("jvm_buffer_pool_growth_bytes_per_second", "pool", buffer.name),
+                        buffer.bytesPerSec);
+            }
+        }
+    }
+
+    private final CompilationMXBean compilationBean = ManagementFactory.getCompilationMXBean();
+    private final ClassLoadingMXBean classBean = ManagementFactory.getClassLoadingMXBean();
+    private final List<BufferPoolMXBean> bufferBeans = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+    // Last used bytes per pool, for the growth rates
+    private final Map<String, Long> lastPoolUsed = new HashMap<>();
+    private final JfrEventMonitor jfrMonitor;
+    private final Object hotspotRuntime;
+    private final Method safepointCount;
+    private final Method safepointTime;
+
+    private volatile Snapshot latest;
+
+    private String safepointSource;
+    private double safepointsPerSec = Double.NaN;
+    private double safepointMillisPerSec = Double.NaN;
+    private double jitMillisPerSec = Double.NaN;
+    private long jitTotalMillis = -1;
+    private double classesLoadedPerSec;
+
+    private long lastNanos;
+    private long lastSafepoints = -1;
+    private long lastSafepointMillis;
+    private long lastJitMillis = -1;
+    private long lastClassesLoaded = -1;
+
+    JvmInternalsSampler(JfrEventMonitor jfrMonitor) {
+        this.jfrMonitor = jfrMonitor;
+
+        // HotSpot's internal runtime MBean is only reachable with
+        // --add-exports java.management/sun.management=ALL-UNNAMED
+        Object runtime = null;
+        Method count = null;
+        Method time = null;
+        try {
+            Class<?> helper = Class.forName("sun.management.ManagementFactoryHelper");
+            runtime = helper.getMethod("getHotspotRuntimeMBean").invoke(null);
+            Class<?> runtimeType = Class.forName("sun.management.HotspotRuntimeMBean");
+            count = runtimeType.getMethod("getSafepointCount");
+            time = runtimeType.getMethod("getTotalSafepointTime");
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            runtime = null;
+        }
+        this.hotspotRuntime = runtime;
+        this.safepointCount = count;
+        this.safepointTime = time;
+    }
+
+    // Null until the first sample()
+    Snapshot latest() {
+        return latest;
+    }
+
+    synchronized Snapshot sample() {
+        long now = System.nanoTime();
+        double seconds = lastNanos == 0 ? 0 : (now - lastNanos) / 1e9;
+        lastNanos = now;
+
+        sampleSafepoints(seconds);
+
+        if (compilationBean != null && compilationBean.isCompilationTimeMonitoringSupported()) {
+            jitTotalMillis = compilationBean.getTotalCompilationTime();
+            if (lastJitMillis >= 0 && seconds > 0) {
+                jitMillisPerSec = (jitTotalMillis - lastJitMillis) / seconds;
+            }
+            lastJitMillis = jitTotalMillis;
+        }
+
+        long loaded = classBean.getTotalLoadedClassCount();
+        if (lastClassesLoaded >= 0 && seconds > 0) {
+            classesLoadedPerSec = (loaded - lastClassesLoaded) / seconds;
+        }
+        lastClassesLoaded = loaded;
+
+        PoolRate metaspace = new PoolRate("Metaspace", 0, 0, 0, 0);
+        List<PoolRate> codeCache = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            String name = pool.getName();
+            if (name.startsWith("CodeHeap") || name.equals("Code Cache")) {
+                codeCache.add(rate(name, pool.getUsage().getUsed(), pool.getUsage().getMax(), 0, seconds));
+            } else if (name.equals("Metaspace")) {
+                metaspace = rate(name, pool.getUsage().getUsed(), pool.getUsage().getCommitted(), 0, seconds);
+            }
+        }
+
+        List<PoolRate> bufferPools = new ArrayList<>();
+        for (BufferPoolMXBean buffer : bufferBeans) {
+            bufferPools.add(rate(buffer.getName(), buffer.getMemoryUsed(), buffer.getTotalCapacity(),
+                    buffer.getCount(), seconds));
+        }
+
+        Snapshot snapshot = new Snapshot(safepointSource, safepointsPerSec, safepointMillisPerSec, jitMillisPerSec,
+                jitTotalMillis, classesLoadedPerSec, metaspace, Collections.unmodifiableList(codeCache),
+                Collections.unmodifiableList(bufferPools));
+        latest = snapshot;
+        return snapshot;
+    }
+
+    private void sampleSafepoints(double seconds) {
+        long count;
+        long millis;
+        if (hotspotRuntime != null) {
+            try {
+                count = (Long) safepointCount.invoke(hotspotRuntime);
+                millis = (Long) safepointTime.invoke(hotspotRuntime);
+                safepointSource = "HotSpot runtime MBean";
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return;
+            }
+        } else if (jfrMonitor.isRunning()) {
+            count = jfrMonitor.safepointCount();
+            millis = jfrMonitor.safepointNanos() / 1_000_000;
+            safepointSource = "JFR events";
+        } else {
+            safepointSource = null;
+            lastSafepoints = -1;
+            return;
+        }
+
+        if (lastSafepoints >= 0 && seconds > 0 && count >= lastSafepoints) {
+            safepointsPerSec = (count - lastSafepoints) / seconds;
+            safepointMillisPerSec = (millis - lastSafepointMillis) / seconds;
+        }
+        lastSafepoints = count;
+        lastSafepointMillis = millis;
+    }
+
+    private PoolRate rate(String name, long used, long capacity, long count, double seconds) {
+        Long lastUsed = lastPoolUsed.put(name, used);
+        double bytesPerSec = lastUsed != null && seconds > 0 ? (used - lastUsed) / seconds : 0;
+        return new PoolRate(name, used, capacity, count, bytesPerSec);
+    }
+}
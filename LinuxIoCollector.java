@@ -0,0 +1,329 @@
+package com.example.demo.threads;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Disk and network I/O rates from /proc/diskstats, /proc/net/dev and /sys/block.
+// Files are re-read with pread into one reused direct buffer and parsed by hand,
+// so a sample costs a few syscalls and no per-line allocation.
+class LinuxIoCollector {
+    private static final Path DISKSTATS = Paths.get("/proc/diskstats");
+    private static final Path NET_DEV = Paths.get("/proc/net/dev");
+    private static final Path SYS_BLOCK = Paths.get("/sys/block");
+    private static final int SECTOR_BYTES = 512;
+
+    static final class DeviceStats {
+        final String name;
+        final byte[] nameBytes;
+        final String readsKey, writesKey, readBytesKey, writeBytesKey, latencyKey;
+        long reads, sectorsRead, readMillis, writes, sectorsWritten, writeMillis;
+        double readIops, writeIops, readBytesPerSec, writeBytesPerSec, avgLatencyMs;
+        boolean seen;
+
+        DeviceStats(String name) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+            this.readsKey = MetricHistory.key("disk_reads_per_second", "device", name);
+            this.writesKey = MetricHistory.key("disk_writes_per_second", "device", name);
+            this.readBytesKey = MetricHistory.key("disk_read_bytes_per_second", "device", name);
+            this.writeBytesKey = MetricHistory.key("disk_write_bytes_per_second", "device", name);
+            this.latencyKey = MetricHistory.key("disk_io_latency_millis", "device", name);
+        }
+    }
+
+    static final class InterfaceStats {
+        final String name;
+        final byte[] nameBytes;
+        final String rxBytesKey, txBytesKey, rxPacketsKey, txPacketsKey;
+        long rxBytes, rxPackets, txBytes, txPackets;
+        double rxBytesPerSec, txBytesPerSec, rxPacketsPerSec, txPacketsPerSec;
+        boolean seen;
+
+        InterfaceStats(String name) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+            this.rxBytesKey = MetricHistory.key("network_receive_bytes_per_second", "interface", name);
+            this.txBytesKey = MetricHistory.key("network_transmit_bytes_per_second", "interface", name);
+            this.rxPacketsKey = MetricHistory.key("network_receive_packets_per_second", "interface", name);
+            this.txPacketsKey = MetricHistory.key("network_transmit_packets_per_second", "interface", name);
+        }
+    }
+
+    private final MetricHistory metrics;
+    // Grown by fill() when a file outgrows it (e.g. /proc/net/dev on a host with hundreds of veths)
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final List<DeviceStats> devices = new ArrayList<>();
+    private final List<InterfaceStats> interfaces = new ArrayList<>();
+    private FileChannel diskChannel;
+    private FileChannel netChannel;
+    private long lastDiskNanos;
+    private long lastNetNanos;
+    private int pos;
+    private int limit;
+
+    LinuxIoCollector(MetricHistory metrics) {
+        this.metrics = metrics;
+    }
+
+    static boolean isSupported() {
+        return Files.isReadable(DISKSTATS) && Files.isReadable(NET_DEV);
+    }
+
+    synchronized List<DeviceStats> devices() {
+        return new ArrayList<>(devices);
+    }
+
+    synchronized List<InterfaceStats> interfaces() {
+        return new ArrayList<>(interfaces);
+    }
+
+    synchronized void sample() throws IOException {
+        sampleDisks();
+        sampleNetwork();
+    }
+
+    synchronized void close() {
+        closeQuietly(diskChannel);
+        closeQuietly(netChannel);
+        diskChannel = null;
+        netChannel = null;
+    }
+
+    private void sampleDisks() throws IOException {
+        if (diskChannel == null) {
+            diskChannel = FileChannel.open(DISKSTATS, StandardOpenOption.READ);
+            // Only whole block devices appear under /sys/block; partitions would double count
+            try (DirectoryStream<Path> dir = Files.newDirectoryStream(SYS_BLOCK)) {
+                for (Path dev : dir) {
+                    String name = dev.getFileName().toString();
+                    if (!name.startsWith("loop") && !name.startsWith("ram")) {
+                        devices.add(new DeviceStats(name));
+                    }
+                }
+            }
+        }
+
+        long now = System.nanoTime();
+        fill(diskChannel);
+        double seconds = (now - lastDiskNanos) / 1e9;
+        boolean first = lastDiskNanos == 0;
+        lastDiskNanos = now;
+
+        while (pos < limit) {
+            // major minor name reads merged sectors ms writes merged sectors ms ...
+            parseLong();
+            parseLong();
+            int nameStart = skipSpaces();
+            int nameEnd = skipToken();
+            DeviceStats dev = findDevice(nameStart, nameEnd);
+            if (dev == null) {
+                skipLine();
+                continue;
+            }
+
+            long reads = parseLong();
+            parseLong();
+            long sectorsRead = parseLong();
+            long readMillis = parseLong();
+            long writes = parseLong();
+            parseLong();
+            long sectorsWritten = parseLong();
+            long writeMillis = parseLong();
+            skipLine();
+
+            if (dev.seen && !first && seconds > 0) {
+                long dReads = delta(reads, dev.reads);
+                long dWrites = delta(writes, dev.writes);
+                long dMillis = delta(readMillis, dev.readMillis) + delta(writeMillis, dev.writeMillis);
+                dev.readIops = dReads / seconds;
+                dev.writeIops = dWrites / seconds;
+                dev.readBytesPerSec = delta(sectorsRead, dev.sectorsRead) * SECTOR_BYTES / seconds;
+                dev.writeBytesPerSec = delta(sectorsWritten, dev.sectorsWritten) * SECTOR_BYTES / seconds;
+                dev.avgLatencyMs = dReads + dWrites > 0 ? (double) dMillis / (dReads + dWrites) : 0;
+
+                metrics.record(dev.readsKey, dev.readIops);
+                metrics.record(dev.writesKey, dev.writeIops);
+                metrics.record(dev.readBytesKey, dev.readBytesPerSec);
+                metrics.record(dev.writeBytesKey, dev.writeBytesPerSec);
+                metrics.record(dev.latencyKey, dev.avgLatencyMs);
+            }
+            dev.reads = reads;
+            dev.sectorsRead = sectorsRead;
+            dev.readMillis = readMillis;
+            dev.writes = writes;
+            dev.sectorsWritten = sectorsWritten;
+            dev.writeMillis = writeMillis;
+            dev.seen = true;
+        }
+    }
+
+    private void sampleNetwork() throws IOException {
+        if (netChannel == null) {
+            netChannel = FileChannel.open(NET_DEV, StandardOpenOption.READ);
+        }
+
+        long now = System.nanoTime();
+        fill(netChannel);
+        double seconds = (now - lastNetNanos) / 1e9;
+        boolean first = lastNetNanos == 0;
+        lastNetNanos = now;
+
+        // Two header lines
+        skipLine();
+        skipLine();
+        while (pos < limit) {
+            // iface: rxBytes rxPackets errs drop fifo frame compressed multicast txBytes txPackets ...
+            int nameStart = skipSpaces();
+            int nameEnd = nameStart;
+            while (nameEnd < limit && buffer.get(nameEnd) != ':') {
+                nameEnd++;
+            }
+            pos = nameEnd + 1;
+            InterfaceStats itf = findInterface(nameStart, nameEnd);
+
+            long rxBytes = parseLong();
+            long rxPackets = parseLong();
+            for (int i = 0; i < 6; i++) {
+                parseLong();
+            }
+            long txBytes = parseLong();
+            long txPackets = parseLong();
+            skipLine();
+
+            if (itf.seen && !first && seconds > 0) {
+                itf.rxBytesPerSec = delta(rxBytes, itf.rxBytes) / seconds;
+                itf.txBytesPerSec = delta(txBytes, itf.txBytes) / seconds;
+                itf.rxPacketsPerSec = delta(rxPackets, itf.rxPackets) / seconds;
+                itf.txPacketsPerSec = delta(txPackets, itf.txPackets) / seconds;
+
+                metrics.record(itf.rxBytesKey, itf.rxBytesPerSec);
+                metrics.record(itf.txBytesKey, itf.txBytesPerSec);
+                metrics.record(itf.rxPacketsKey, itf.rxPacketsPerSec);
+                metrics.record(itf.txPacketsKey, itf.txPacketsPerSec);
+            }
+            itf.rxBytes = rxBytes;
+            itf.rxPackets = rxPackets;
+            itf.txBytes = txBytes;
+            itf.txPackets = txPackets;
+            itf.seen = true;
+        }
+    }
+
+    // Reads the whole file, doubling the buffer whenever it fills before EOF
+    private void fill(FileChannel channel) throws IOException {
+        buffer.clear();
+        long position = 0;
+        int n;
+        while ((n = channel.read(buffer, position)) > 0) {
+            position += n;
+            if (!buffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+        pos = 0;
+        limit = buffer.position();
+        // The kernel regenerates the text on every read, so a table that changed between reads can
+        // end mid-line; parse whole lines only
+        while (limit > 0 && buffer.get(limit - 1) != '\n') {
+            limit--;
+        }
+    }
+
+    // A counter that went backwards was reset (device re-created, module reloaded); count the
+    // interval as idle rather than report a negative rate
+    private static long delta(long current, long previous) {
+        return current >= previous ? current - previous : 0;
+    }
+
+    private DeviceStats findDevice(int start, int end) {
+        for (DeviceStats dev : devices) {
+            if (nameEquals(dev.nameBytes, start, end)) {
+                return dev;
+            }
+        }
+        return null;
+    }
+
+    private InterfaceStats findInterface(int start, int end) {
+        for (InterfaceStats itf : interfaces) {
+            if (nameEquals(itf.nameBytes, start, end)) {
+                return itf;
+            }
+        }
+        byte[] name = new byte[end - start];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = buffer.get(start + i);
+        }
+        InterfaceStats itf = new InterfaceStats(new String(name, StandardCharsets.US_ASCII));
+        interfaces.add(itf);
+        return itf;
+    }
+
+    private boolean nameEquals(byte[] name, int start, int end) {
+        if (name.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (name[i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipSpaces() {
+        while (pos < limit && buffer.get(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private int skipToken() {
+        while (pos < limit) {
+            byte b = buffer.get(pos);
+            if (b == ' ' || b == '\n') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private void skipLine() {
+        while (pos < limit && buffer.get(pos) != '\n') {
+            pos++;
+        }
+        pos++;
+    }
+
+    private long parseLong() {
+        skipSpaces();
+        long value = 0;
+        while (pos < limit) {
+            int digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            value = value * 10 + digit;
+            pos++;
+        }
+        return value;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing useful to do on close
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.demo.threads;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+
+// Pushes samples recorded in a MetricHistory to a MetricAggregator. Samples are
+// buffered as primitives and sent in delta-encoded batches on flush(); the
+// channel is non-blocking, so a slow aggregator leaves bytes queued instead of
+// stalling the caller. On disconnect the agent reconnects and re-sends its
+// HELLO and DEFINE frames.
+class MetricAgent implements MetricHistory.Listener {
+    private static final int MAX_PENDING = 8192;
+    private static final int MAX_BATCH = 2000;
+
+    private final String nodeName;
+    private final InetSocketAddress aggregator;
+    private final Map<String, Integer> metricIds = new HashMap<>();
+    private final List<String> metricKeys = new ArrayList<>();
+    private final ByteBuffer out = ByteBuffer.allocateDirect(256 * 1024);
+    private final int[] pendingIds = new int[MAX_PENDING];
+    private final long[] pendingTimes = new long[MAX_PENDING];
+    private final double[] pendingValues = new double[MAX_PENDING];
+    private int pendingCount;
+    private long dropped;
+    private long sentSamples;
+
+    // Delta state for the current connection
+    private SocketChannel channel;
+    private boolean helloSent;
+    private int definedCount;
+    private long[] lastScaled = new long[64];
+    private long lastTimestamp;
+
+    MetricAgent(String nodeName, InetSocketAddress aggregator) {
+        this.nodeName = nodeName;
+        this.aggregator = aggregator;
+        out.flip();
+    }
+
+    String nodeName() {
+        return nodeName;
+    }
+
+    synchronized long sentSamples() {
+        return sentSamples;
+    }
+
+    synchronized long dropped() {
+        return dropped;
+    }
+
+    @Override
+    public void onSample(MetricHistory.Series series, long timestamp, double value) {
+        offer(series.key(), timestamp, value);
+    }
+
+    synchronized void offer(String key, long timestamp, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        if (pendingCount == MAX_PENDING) {
+            dropped++;
+            return;
+        }
+        Integer id = metricIds.get(key);
+        if (id == null) {
+            id = metricKeys.size();
+            metricIds.put(key, id);
+            metricKeys.add(key);
+        }
+        pendingIds[pendingCount] = id;
+        pendingTimes[pendingCount] = timestamp;
+        pendingValues[pendingCount] = value;
+        pendingCount++;
+    }
+
+    synchronized void flush() {
+        try {
+            if (!ensureConnected()) {
+                return;
+            }
+            // Anything left over from the last flush goes out first
+            if (out.hasRemaining()) {
+                channel.write(out);
+                if (out.hasRemaining()) {
+                    return;
+                }
+            }
+
+            out.clear();
+            encodeDefines();
+            int encoded = encodeBatch();
+            out.flip();
+            channel.write(out);
+
+            System.arraycopy(pendingIds, encoded, pendingIds, 0, pendingCount - encoded);
+            System.arraycopy(pendingTimes, encoded, pendingTimes, 0, pendingCount - encoded);
+            System.arraycopy(pendingValues, encoded, pendingValues, 0, pendingCount - encoded);
+            pendingCount -= encoded;
+            sentSamples += encoded;
+        } catch (IOException e) {
+            disconnect();
+        }
+    }
+
+    synchronized void close() {
+        disconnect();
+    }
+
+    private boolean ensureConnected() throws IOException {
+        if (channel == null) {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.connect(aggregator);
+        }
+        if (channel.isConnectionPending() && !channel.finishConnect()) {
+            return false;
+        }
+        if (!helloSent) {
+            out.clear();
+            int start = MetricProtocol.beginFrame(out, MetricProtocol.HELLO);
+            MetricProtocol.putString(out, nodeName);
+            MetricProtocol.endFrame(out, start);
+            out.flip();
+            helloSent = true;
+        }
+        return true;
+    }
+
+    private void encodeDefines() {
+        while (definedCount < metricKeys.size() && out.remaining() > 1024) {
+            int start = MetricProtocol.beginFrame(out, MetricProtocol.DEFINE);
+            MetricProtocol.putVarint(out, definedCount);
+            MetricProtocol.putString(out, metricKeys.get(definedCount));
+            MetricProtocol.endFrame(out, start);
+            definedCount++;
+        }
+        if (lastScaled.length < definedCount) {
+            lastScaled = Arrays.copyOf(lastScaled, Math.max(lastScaled.length * 2, definedCount));
+        }
+    }
+
+    // Returns how many pending samples were encoded
+    private int encodeBatch() {
+        int limit = 0;
+        while (limit < pendingCount && limit < MAX_BATCH && pendingIds[limit] < definedCount) {
+            limit++;
+        }
+        if (limit == 0 || out.remaining() < MetricProtocol.MAX_FRAME) {
+            return 0;
+        }
+
+        int start = MetricProtocol.beginFrame(out, MetricProtocol.BATCH);
+        MetricProtocol.putVarint(out, limit);
+        long previousTime = lastTimestamp;
+        for (int i = 0; i < limit; i++) {
+            int id = pendingIds[i];
+            long scaled = MetricProtocol.scale(pendingValues[i]);
+            MetricProtocol.putVarint(out, id);
+            MetricProtocol.putSignedVarint(out, pendingTimes[i] - previousTime);
+            MetricProtocol.putSignedVarint(out, scaled - lastScaled[id]);
+            previousTime = pendingTimes[i];
+            lastScaled[id] = scaled;
+        }
+        MetricProtocol.endFrame(out, start);
+        lastTimestamp = previousTime;
+        return limit;
+    }
+
+    private void disconnect() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already broken
+            }
+        }
+        channel = null;
+        helloSent = false;
+        definedCount = 0;
+        lastTimestamp = 0;
+        Arrays.fill(lastScaled, 0);
+        out.clear();
+        out.flip();
+    }
+}
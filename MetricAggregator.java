@@ -0,0 +1,236 @@
+package com.example.demo.threads;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Receives MetricAgent streams on one selector thread and merges them into a
+// single MetricHistory, adding a node="..." label to every series key.
+class MetricAggregator {
+    static final class NodeStats {
+        final String node;
+        volatile long samples;
+        volatile long lastSeen;
+        volatile boolean connected = true;
+
+        NodeStats(String node) {
+            this.node = node;
+        }
+    }
+
+    private static final class Connection {
+        final ByteBuffer in = ByteBuffer.allocate(2 * MetricProtocol.MAX_FRAME);
+        final List<String> keys = new ArrayList<>();
+        long[] lastScaled = new long[64];
+        long lastTimestamp;
+        NodeStats stats;
+    }
+
+    private final MetricHistory store;
+    private final Map<String, NodeStats> nodes = new ConcurrentHashMap<>();
+    private final AtomicLong totalSamples = new AtomicLong();
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread loop;
+
+    MetricAggregator(MetricHistory store) {
+        this.store = store;
+    }
+
+    MetricHistory store() {
+        return store;
+    }
+
+    Collection<NodeStats> nodes() {
+        return nodes.values();
+    }
+
+    long totalSamples() {
+        return totalSamples.get();
+    }
+
+    synchronized boolean isRunning() {
+        return loop != null;
+    }
+
+    synchronized void start(int port) throws IOException {
+        if (loop != null) {
+            return;
+        }
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.configureBlocking(false);
+        server.bind(new InetSocketAddress(port), 1024);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        loop = new Thread(this::run, "metric-aggregator");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    synchronized void stop() {
+        if (loop == null) {
+            return;
+        }
+        loop.interrupt();
+        selector.wakeup();
+        try {
+            loop.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        loop = null;
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                selector.select(1000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("Aggregator stopped: " + e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new Connection());
+        }
+    }
+
+    private void read(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        try {
+            int n = channel.read(connection.in);
+            if (n < 0) {
+                drop(key, connection);
+                return;
+            }
+            connection.in.flip();
+            while (connection.in.remaining() >= 4) {
+                int length = connection.in.getInt(connection.in.position());
+                if (length <= 0 || length > MetricProtocol.MAX_FRAME) {
+                    throw new IllegalStateException("Bad frame length " + length);
+                }
+                if (connection.in.remaining() < 4 + length) {
+                    break;
+                }
+                int frameEnd = connection.in.position() + 4 + length;
+                connection.in.position(connection.in.position() + 4);
+                ByteBuffer frame = connection.in.slice();
+                frame.limit(length);
+                handleFrame(connection, frame);
+                connection.in.position(frameEnd);
+            }
+            connection.in.compact();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Dropping agent connection: " + e.getMessage());
+            drop(key, connection);
+        }
+    }
+
+    private void handleFrame(Connection connection, ByteBuffer frame) {
+        byte type = frame.get();
+        switch (type) {
+            case MetricProtocol.HELLO:
+                String node = MetricProtocol.getString(frame);
+                connection.stats = nodes.computeIfAbsent(node, NodeStats::new);
+                connection.stats.connected = true;
+                break;
+            case MetricProtocol.DEFINE:
+                requireHello(connection);
+                int id = (int) MetricProtocol.getVarint(frame);
+                if (id != connection.keys.size()) {
+                    throw new IllegalStateException("Out-of-order metric id " + id);
+                }
+                connection.keys.add(withNodeLabel(MetricProtocol.getString(frame), connection.stats.node));
+                if (connection.lastScaled.length < connection.keys.size()) {
+                    connection.lastScaled = Arrays.copyOf(connection.lastScaled, connection.lastScaled.length * 2);
+                }
+                break;
+            case MetricProtocol.BATCH:
+                requireHello(connection);
+                int count = (int) MetricProtocol.getVarint(frame);
+                for (int i = 0; i < count; i++) {
+                    int metric = (int) MetricProtocol.getVarint(frame);
+                    if (metric >= connection.keys.size()) {
+                        throw new IllegalStateException("Undefined metric id " + metric);
+                    }
+                    long timestamp = connection.lastTimestamp + MetricProtocol.getSignedVarint(frame);
+                    long scaled = connection.lastScaled[metric] + MetricProtocol.getSignedVarint(frame);
+                    connection.lastTimestamp = timestamp;
+                    connection.lastScaled[metric] = scaled;
+                    store.record(connection.keys.get(metric), timestamp, scaled / MetricProtocol.SCALE);
+                }
+                connection.stats.samples += count;
+                connection.stats.lastSeen = System.currentTimeMillis();
+                totalSamples.addAndGet(count);
+                break;
+            default:
+                throw new IllegalStateException("Unknown frame type " + type);
+        }
+    }
+
+    private static void requireHello(Connection connection) {
+        if (connection.stats == null) {
+            throw new IllegalStateException("Frame before HELLO");
+        }
+    }
+
+    private void drop(SelectionKey key, Connection connection) {
+        if (connection.stats != null) {
+            connection.stats.connected = false;
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            // Shutting down anyway
+        }
+        for (NodeStats stats : nodes.values()) {
+            stats.connected = false;
+        }
+    }
+
+    static String withNodeLabel(String key, String node) {
+        String label = "node=\"" + node.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        int brace = key.indexOf('{');
+        if (brace < 0) {
+            return key + "{" + label + "}";
+        }
+        return key.substring(0, brace + 1) + label + "," + key.substring(brace + 1);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo.threads;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Ring-buffered sample history shared by every HardwareMonitor collector.
+// Series keys use the Prometheus form: name{label="value"}.
+class MetricHistory {
+    interface Listener {
+        void onSample(Series series, long timestamp, double value);
+    }
+
+    static final class Series {
+        private final String key;
+        private final long[] timestamps;
+        private final double[] values;
+        private int head;
+        private int size;
+        private volatile long version;
+
+        Series(String key, int capacity) {
+            this.key = key;
+            this.timestamps = new long[capacity];
+            this.values = new double[capacity];
+        }
+
+        String key() {
+            return key;
+        }
+
+        long version() {
+            return version;
+        }
+
+        synchronized void add(long timestamp, double value) {
+            timestamps[head] = timestamp;
+            values[head] = value;
+            head = (head + 1) % values.length;
+            if (size < values.length) {
+                size++;
+            }
+            version++;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized double latest() {
+            return size == 0 ? Double.NaN : values[(head - 1 + values.length) % values.length];
+        }
+
+        synchronized long latestTimestamp() {
+            return size == 0 ? 0 : timestamps[(head - 1 + values.length) % values.length];
+        }
+
+        // Copies up to dest.length most recent values, oldest first. Returns the count copied.
+        synchronized int copyValues(double[] dest) {
+            int n = Math.min(size, dest.length);
+            int start = (head - n + values.length) % values.length;
+            for (int i = 0; i < n; i++) {
+                dest[i] = values[(start + i) % values.length];
+            }
+            return n;
+        }
+
+        synchronized int copyTimestamps(long[] dest) {
+            int n = Math.min(size, dest.length);
+            int start = (head - n + timestamps.length) % timestamps.length;
+            for (int i = 0; i < n; i++) {
+                dest[i] = timestamps[(start + i) % timestamps.length];
+            }
+            return n;
+        }
+    }
+
+    private final int capacity;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    MetricHistory(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void record(String key, double value) {
+        record(key, System.currentTimeMillis(), value);
+    }
+
+    void record(String key, long timestamp, double value) {
+        Series s = series.get(key);
+        if (s == null) {
+            s = series.computeIfAbsent(key, k -> new Series(k, capacity));
+        }
+        s.add(timestamp, value);
+        for (Listener listener : listeners) {
+            listener.onSample(s, timestamp, value);
+        }
+    }
+
+    Series get(String key) {
+        return series.get(key);
+    }
+
+    double latest(String key, double defaultValue) {
+        Series s = series.get(key);
+        if (s == null || s.size() == 0) {
+            return defaultValue;
+        }
+        return s.latest();
+    }
+
+    Collection<Series> all() {
+        return series.values();
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    static String key(String name, String label, String labelValue) {
+        return name + "{" + label + "=\"" + labelValue.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+}
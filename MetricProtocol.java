@@ -0,0 +1,86 @@
+package com.example.demo.threads;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Wire format between MetricAgent and MetricAggregator. Every frame is
+// [int32 length][byte type][payload]:
+//   HELLO  - node name
+//   DEFINE - varint metric id, metric key
+//   BATCH  - varint count, then per sample: varint metric id,
+//            zigzag varint timestamp delta (ms, vs previous sample in the stream),
+//            zigzag varint value delta (milli-units, vs previous value of that metric)
+final class MetricProtocol {
+    static final byte HELLO = 1;
+    static final byte DEFINE = 2;
+    static final byte BATCH = 3;
+    static final int MAX_FRAME = 64 * 1024;
+    static final double SCALE = 1000.0;
+
+    private MetricProtocol() {
+    }
+
+    static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 63) {
+                throw new IllegalStateException("Malformed varint");
+            }
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static void putSignedVarint(ByteBuffer buffer, long value) {
+        putVarint(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    static long getSignedVarint(ByteBuffer buffer) {
+        long raw = getVarint(buffer);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarint(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = (int) getVarint(buffer);
+        if (length > buffer.remaining()) {
+            throw new IllegalStateException("String length exceeds frame");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Reserves the length prefix; finish with endFrame(buffer, start)
+    static int beginFrame(ByteBuffer buffer, byte type) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.put(type);
+        return start;
+    }
+
+    static void endFrame(ByteBuffer buffer, int start) {
+        buffer.putInt(start, buffer.position() - start - 4);
+    }
+
+    static long scale(double value) {
+        return Math.round(value * SCALE);
+    }
+}
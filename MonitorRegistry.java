@@ -0,0 +1,237 @@
+package com.example.demo.threads;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+
+// Each collector is registered once and started/stopped on its own schedule.
+// Slow collectors (interface enumeration, file stores) get their own executor
+// so a blocked syscall there cannot delay the fast CPU/memory samplers.
+class MonitorRegistry {
+    static final class Monitor {
+        final String name;
+        final String label;
+        final boolean slow;
+        private final Runnable task;
+        private final Runnable onStart;
+        private final Runnable onStop;
+        private final AdaptiveInterval policy;
+        private final DoubleSupplier signal;
+        private volatile long intervalMillis;
+        private volatile long runs;
+        private volatile long lastRunNanos;
+        private volatile long totalCpuNanos;
+        private Future<?> future;
+        private boolean running;
+        private int generation;
+
+        private Monitor(String name, String label, Runnable task, long intervalMillis, boolean slow,
+                Runnable onStart, Runnable onStop, AdaptiveInterval policy, DoubleSupplier signal) {
+            this.name = name;
+            this.label = label;
+            this.task = task;
+            this.intervalMillis = intervalMillis;
+            this.slow = slow;
+            this.onStart = onStart;
+            this.onStop = onStop;
+            this.policy = policy;
+            this.signal = signal;
+        }
+
+        long intervalMillis() {
+            return intervalMillis;
+        }
+
+        boolean isPeriodic() {
+            return task != null;
+        }
+
+        boolean isAdaptive() {
+            return policy != null;
+        }
+
+        AdaptiveInterval policy() {
+            return policy;
+        }
+
+        long runs() {
+            return runs;
+        }
+
+        double lastRunMillis() {
+            return lastRunNanos / 1e6;
+        }
+
+        // CPU consumed by this monitor's own task, summed over all runs
+        long totalCpuNanos() {
+            return totalCpuNanos;
+        }
+    }
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private final ScheduledExecutorService fastExecutor;
+    private final ScheduledExecutorService slowExecutor;
+    private final Map<String, Monitor> monitors = new LinkedHashMap<>();
+
+    MonitorRegistry(int fastThreads, int slowThreads) {
+        this.fastExecutor = Executors.newScheduledThreadPool(fastThreads, namedThreads("monitor-fast"));
+        this.slowExecutor = Executors.newScheduledThreadPool(slowThreads, namedThreads("monitor-slow"));
+    }
+
+    // Re-registering a name stops the monitor it replaces, so its scheduled task cannot outlive it
+    synchronized void register(String name, String label, Runnable task, long interval, TimeUnit unit, boolean slow) {
+        stop(name);
+        monitors.put(name, new Monitor(name, label, task, unit.toMillis(interval), slow, null, null, null, null));
+    }
+
+    // The delay after each run comes from the policy, fed with the signal read after the task
+    synchronized void registerAdaptive(String name, String label, Runnable task, DoubleSupplier signal,
+            AdaptiveInterval policy, boolean slow) {
+        stop(name);
+        monitors.put(name, new Monitor(name, label, task, policy.initialMillis(), slow, null, null, policy, signal));
+    }
+
+    // For event-driven collectors that manage their own threads (e.g. JFR streaming)
+    synchronized void registerService(String name, String label, Runnable onStart, Runnable onStop) {
+        stop(name);
+        monitors.put(name, new Monitor(name, label, null, 0, false, onStart, onStop, null, null));
+    }
+
+    synchronized Monitor get(String name) {
+        return monitors.get(name);
+    }
+
+    synchronized List<Monitor> monitors() {
+        return new ArrayList<>(monitors.values());
+    }
+
+    synchronized boolean isRunning(String name) {
+        Monitor monitor = monitors.get(name);
+        return monitor != null && monitor.running;
+    }
+
+    synchronized boolean isAnyRunning() {
+        for (Monitor monitor : monitors.values()) {
+            if (monitor.running) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized boolean start(String name, long initialDelayMillis) {
+        Monitor monitor = monitors.get(name);
+        if (monitor == null) {
+            throw new IllegalArgumentException("Unknown monitor: " + name);
+        }
+        if (monitor.running) {
+            return false;
+        }
+
+        monitor.generation++;
+        if (monitor.isAdaptive()) {
+            monitor.policy.reset();
+            scheduleAdaptive(monitor, monitor.generation, initialDelayMillis);
+        } else if (monitor.isPeriodic()) {
+            ScheduledExecutorService executor = monitor.slow ? slowExecutor : fastExecutor;
+            monitor.future = executor.scheduleAtFixedRate(() -> runSafely(monitor),
+                    initialDelayMillis, monitor.intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            monitor.onStart.run();
+        }
+        monitor.running = true;
+        return true;
+    }
+
+    synchronized boolean stop(String name) {
+        Monitor monitor = monitors.get(name);
+        if (monitor == null || !monitor.running) {
+            return false;
+        }
+
+        if (monitor.future != null) {
+            monitor.future.cancel(true);
+            monitor.future = null;
+        }
+        if (monitor.onStop != null) {
+            monitor.onStop.run();
+        }
+        monitor.running = false;
+        return true;
+    }
+
+    synchronized int stopAll() {
+        int stopped = 0;
+        for (String name : monitors.keySet()) {
+            if (stop(name)) {
+                stopped++;
+            }
+        }
+        return stopped;
+    }
+
+    void shutdown() {
+        stopAll();
+        for (ScheduledExecutorService executor : List.of(fastExecutor, slowExecutor)) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(3, TimeUnit.SECONDS)) {
+                    System.out.println("Forcing shutdown...");
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void scheduleAdaptive(Monitor monitor, int generation, long delayMillis) {
+        ScheduledExecutorService executor = monitor.slow ? slowExecutor : fastExecutor;
+        monitor.future = executor.schedule(() -> {
+            runSafely(monitor);
+            long next = monitor.intervalMillis;
+            try {
+                next = monitor.policy.next(monitor.signal.getAsDouble());
+            } catch (RuntimeException e) {
+                System.err.println("Error reading " + monitor.label + " signal: " + e.getMessage());
+            }
+            monitor.intervalMillis = next;
+            synchronized (this) {
+                // A stop or restart since this run was scheduled ends this chain
+                if (monitor.running && monitor.generation == generation) {
+                    scheduleAdaptive(monitor, generation, next);
+                }
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void runSafely(Monitor monitor) {
+        long start = System.nanoTime();
+        long cpuStart = threadBean.getCurrentThreadCpuTime();
+        try {
+            monitor.task.run();
+        } catch (Exception e) {
+            System.err.println("Error in " + monitor.label + " monitoring: " + e.getMessage());
+        }
+        // Only the owning executor thread writes these, one run at a time
+        monitor.lastRunNanos = System.nanoTime() - start;
+        if (cpuStart >= 0) {
+            monitor.totalCpuNanos += threadBean.getCurrentThreadCpuTime() - cpuStart;
+        }
+        monitor.runs++;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
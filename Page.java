@@ -0,0 +1,50 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.Arrays;
+
+// One page of an ordered result: the ids at [offset, offset + limit) plus the
+// total match count, so callers can render "21-40 of 183,204" and a next link
+// without materialising the rest.
+public final class Page {
+    private final int[] ids;
+    private final int offset;
+    private final int limit;
+    private final int total;
+
+    public Page(int[] ids, int offset, int limit, int total) {
+        this.ids = ids;
+        this.offset = offset;
+        this.limit = limit;
+        this.total = total;
+    }
+
+    public int[] ids() {
+        return ids;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int total() {
+        return total;
+    }
+
+    public boolean hasNext() {
+        return offset + ids.length < total;
+    }
+
+    public boolean hasPrevious() {
+        return offset > 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Page[%d-%d of %,d] %s", ids.length == 0 ? offset : offset + 1, offset + ids.length,
+                total, Arrays.toString(ids));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.Arrays;
+
+// Append-only postings for one term: (doc id gap, term frequency) pairs, each a
+// varint, in one byte array. A skip entry every SKIP_INTERVAL postings lets a
+// cursor jump over whole blocks when intersecting with a rarer term.
+public final class PostingList {
+    public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+    private static final int SKIP_INTERVAL = 64;
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int size;
+    private int lastDoc = -1;
+    private int maxTermFrequency;
+    private int[] skipDocs = new int[1];
+    private int[] skipOffsets = new int[1];
+    private int skipCount;
+
+    // Doc ids must arrive in increasing order, as product ordinals do
+    public void add(int doc, int termFrequency) {
+        if (doc <= lastDoc) {
+            throw new IllegalArgumentException("Doc " + doc + " added after " + lastDoc);
+        }
+        if (size % SKIP_INTERVAL == 0) {
+            if (skipCount == skipDocs.length) {
+                skipDocs = Arrays.copyOf(skipDocs, skipCount * 2);
+                skipOffsets = Arrays.copyOf(skipOffsets, skipCount * 2);
+            }
+            skipDocs[skipCount] = lastDoc;
+            skipOffsets[skipCount] = length;
+            skipCount++;
+        }
+        writeVarint(doc - lastDoc);
+        writeVarint(termFrequency);
+        lastDoc = doc;
+        size++;
+        maxTermFrequency = Math.max(maxTermFrequency, termFrequency);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int maxTermFrequency() {
+        return maxTermFrequency;
+    }
+
+    public int sizeInBytes() {
+        return length + skipCount * 8;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    private void writeVarint(int value) {
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        }
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    // Forward-only iterator; doc() is -1 before the first next() and NO_MORE_DOCS at the end
+    public final class Cursor {
+        private int offset;
+        private int index;
+        private int doc = -1;
+        private int termFrequency;
+
+        public int doc() {
+            return doc;
+        }
+
+        public int termFrequency() {
+            return termFrequency;
+        }
+
+        public int next() {
+            if (index >= size) {
+                return doc = NO_MORE_DOCS;
+            }
+            doc = (doc < 0 ? -1 : doc) + readVarint();
+            termFrequency = readVarint();
+            index++;
+            return doc;
+        }
+
+        // First doc >= target
+        public int advance(int target) {
+            if (doc >= target) {
+                return doc;
+            }
+            // skipDocs[k] is the last doc before block k, so block k can be skipped into when it is < target
+            int block = index / SKIP_INTERVAL + 1;
+            if (block < skipCount && skipDocs[block] < target) {
+                while (block + 1 < skipCount && skipDocs[block + 1] < target) {
+                    block++;
+                }
+                offset = skipOffsets[block];
+                index = block * SKIP_INTERVAL;
+                doc = skipDocs[block];
+            }
+            while (next() < target) {
+                // linear within the block
+            }
+            return doc;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Type-ahead index: an array-backed trie over lower-cased product names, entered
+// at the start of every word so "key" finds "Mechanical Keyboard". Each node
+// keeps the top K products under it by rating, so a suggestion is a walk down
+// the prefix plus a copy, with no subtree traversal.
+//
+// Nodes live in parallel primitive arrays (label, first child, next sibling)
+// rather than one object per node; keys are cut at MAX_DEPTH characters since
+// nobody types further before picking a suggestion.
+public class PrefixTrie {
+    private static final int MAX_DEPTH = 32;
+    private static final int NONE = -1;
+
+    private final int k;
+    private char[] labels = new char[1024];
+    private int[] firstChild = new int[1024];
+    private int[] nextSibling = new int[1024];
+    private int[] top;
+    private int nodeCount;
+    private float[] ratings = new float[1024];
+
+    public PrefixTrie(int k) {
+        this.k = k;
+        this.top = new int[labels.length * k];
+        newNode('\0');
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public void add(int id, String name, double rating) {
+        if (id >= ratings.length) {
+            ratings = Arrays.copyOf(ratings, Math.max(ratings.length * 2, id + 1));
+        }
+        ratings[id] = (float) rating;
+
+        String key = name.toLowerCase(Locale.ROOT);
+        for (int start = 0; start < key.length(); start++) {
+            boolean wordStart = Character.isLetterOrDigit(key.charAt(start))
+                    && (start == 0 || !Character.isLetterOrDigit(key.charAt(start - 1)));
+            if (!wordStart) {
+                continue;
+            }
+            int node = 0;
+            int end = Math.min(key.length(), start + MAX_DEPTH);
+            for (int i = start; i < end; i++) {
+                node = child(node, key.charAt(i), true);
+                offer(node, id);
+            }
+        }
+    }
+
+    // Up to limit (at most K) product ids whose name has a word starting with prefix, best rated first
+    public int[] suggest(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        int node = 0;
+        for (int i = 0; i < key.length() && i < MAX_DEPTH; i++) {
+            node = child(node, key.charAt(i), false);
+            if (node == NONE) {
+                return new int[0];
+            }
+        }
+        int base = node * k;
+        int count = 0;
+        while (count < Math.min(limit, k) && top[base + count] != NONE) {
+            count++;
+        }
+        return Arrays.copyOfRange(top, base, base + count);
+    }
+
+    private int child(int node, char label, boolean create) {
+        int previous = NONE;
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            if (labels[c] == label) {
+                return c;
+            }
+            previous = c;
+        }
+        if (!create) {
+            return NONE;
+        }
+        int created = newNode(label);
+        if (previous == NONE) {
+            firstChild[node] = created;
+        } else {
+            nextSibling[previous] = created;
+        }
+        return created;
+    }
+
+    private int newNode(char label) {
+        if (nodeCount == labels.length) {
+            int capacity = labels.length * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            top = Arrays.copyOf(top, capacity * k);
+        }
+        int node = nodeCount++;
+        labels[node] = label;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        Arrays.fill(top, node * k, node * k + k, NONE);
+        return node;
+    }
+
+    // Insertion into the node's rating-ordered top-K slice; ties keep the earlier product
+    private void offer(int node, int id) {
+        int base = node * k;
+        float rating = ratings[id];
+        int position = k;
+        for (int i = 0; i < k; i++) {
+            int current = top[base + i];
+            if (current == id) {
+                return;
+            }
+            if (current == NONE || ratings[current] < rating) {
+                position = i;
+                break;
+            }
+        }
+        if (position == k) {
+            return;
+        }
+        // An equal-rated copy of this product would have been met before position, so no duplicate check below
+        System.arraycopy(top, base + position, top, base + position + 1, k - 1 - position);
+        top[base + position] = id;
+    }
+}
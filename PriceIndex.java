@@ -0,0 +1,187 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Price -> product lookup kept as parallel sorted double[]/int[] arrays, so a
+// range query is two binary searches and a contiguous copy. New prices land in
+// a small sorted merge buffer instead of shifting the main arrays; once the
+// buffer fills it is merged in one linear pass. A price change leaves a
+// tombstone on the old main-array entry until that merge drops it.
+public class PriceIndex {
+    private static final int MIN_BUFFER = 256;
+
+    private double[] prices = new double[0];
+    private int[] ids = new int[0];
+    private int size;
+    private double[] bufferPrices = new double[MIN_BUFFER];
+    private int[] bufferIds = new int[MIN_BUFFER];
+    private int bufferSize;
+    private final BitSet staleInMain = new BitSet();
+    private int staleCount;
+    private double[] priceById = new double[1024];
+    private int productCount;
+    private long merges;
+
+    public void add(int id, double price) {
+        if (id >= priceById.length) {
+            priceById = Arrays.copyOf(priceById, Math.max(priceById.length * 2, id + 1));
+        }
+        priceById[id] = price;
+        productCount = Math.max(productCount, id + 1);
+        insertIntoBuffer(id, price);
+    }
+
+    public void updatePrice(int id, double price) {
+        double old = priceById[id];
+        if (!removeFromBuffer(id, old)) {
+            staleInMain.set(id);
+            staleCount++;
+        }
+        priceById[id] = price;
+        insertIntoBuffer(id, price);
+    }
+
+    public double price(int id) {
+        return priceById[id];
+    }
+
+    public int productCount() {
+        return productCount;
+    }
+
+    public long mergeCount() {
+        return merges;
+    }
+
+    // Estimate for query planning: ignores tombstones, so it may overcount slightly
+    public int count(double min, double max) {
+        if (isEmpty(min, max)) {
+            return 0;
+        }
+        double end = Math.nextUp(max);
+        return lowerBound(prices, size, end) - lowerBound(prices, size, min)
+                + lowerBound(bufferPrices, bufferSize, end) - lowerBound(bufferPrices, bufferSize, min);
+    }
+
+    // Exact match, e.g. the "399.99" lookup the binary strategy used to do on the price string
+    public int[] equalTo(double price) {
+        return range(price, price);
+    }
+
+    // Ids with min <= price <= max, in ascending price order (ties by id)
+    public int[] range(double min, double max) {
+        if (isEmpty(min, max)) {
+            return new int[0];
+        }
+        double end = Math.nextUp(max);
+        int mainFrom = lowerBound(prices, size, min);
+        int mainTo = lowerBound(prices, size, end);
+        int bufferFrom = lowerBound(bufferPrices, bufferSize, min);
+        int bufferTo = lowerBound(bufferPrices, bufferSize, end);
+
+        int[] result = new int[(mainTo - mainFrom) + (bufferTo - bufferFrom)];
+        int count = 0;
+        int i = mainFrom;
+        int j = bufferFrom;
+        while (i < mainTo || j < bufferTo) {
+            boolean takeMain = j >= bufferTo || (i < mainTo && compare(prices[i], ids[i], bufferPrices[j], bufferIds[j]) <= 0);
+            if (takeMain) {
+                if (staleCount == 0 || !staleInMain.get(ids[i])) {
+                    result[count++] = ids[i];
+                }
+                i++;
+            } else {
+                result[count++] = bufferIds[j++];
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // An inverted range, or a NaN bound, matches nothing
+    private static boolean isEmpty(double min, double max) {
+        return !(min <= max);
+    }
+
+    private void insertIntoBuffer(int id, double price) {
+        if (bufferSize == bufferPrices.length) {
+            merge();
+        }
+        int position = bufferSize;
+        while (position > 0 && compare(bufferPrices[position - 1], bufferIds[position - 1], price, id) > 0) {
+            position--;
+        }
+        System.arraycopy(bufferPrices, position, bufferPrices, position + 1, bufferSize - position);
+        System.arraycopy(bufferIds, position, bufferIds, position + 1, bufferSize - position);
+        bufferPrices[position] = price;
+        bufferIds[position] = id;
+        bufferSize++;
+    }
+
+    private boolean removeFromBuffer(int id, double price) {
+        for (int i = lowerBound(bufferPrices, bufferSize, price); i < bufferSize && bufferPrices[i] == price; i++) {
+            if (bufferIds[i] == id) {
+                System.arraycopy(bufferPrices, i + 1, bufferPrices, i, bufferSize - i - 1);
+                System.arraycopy(bufferIds, i + 1, bufferIds, i, bufferSize - i - 1);
+                bufferSize--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // One linear pass over main and buffer; the buffer then grows with sqrt(n) to keep inserts amortised
+    private void merge() {
+        int capacity = size - staleCount + bufferSize;
+        double[] mergedPrices = new double[capacity];
+        int[] mergedIds = new int[capacity];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < bufferSize) {
+            if (j >= bufferSize || (i < size && compare(prices[i], ids[i], bufferPrices[j], bufferIds[j]) <= 0)) {
+                if (!staleInMain.get(ids[i])) {
+                    mergedPrices[count] = prices[i];
+                    mergedIds[count++] = ids[i];
+                }
+                i++;
+            } else {
+                mergedPrices[count] = bufferPrices[j];
+                mergedIds[count++] = bufferIds[j++];
+            }
+        }
+        prices = mergedPrices;
+        ids = mergedIds;
+        size = count;
+        staleInMain.clear();
+        staleCount = 0;
+
+        int bufferCapacity = Math.max(MIN_BUFFER, (int) Math.sqrt(size));
+        if (bufferCapacity != bufferPrices.length) {
+            bufferPrices = new double[bufferCapacity];
+            bufferIds = new int[bufferCapacity];
+        }
+        bufferSize = 0;
+        merges++;
+    }
+
+    private static int compare(double priceA, int idA, double priceB, int idB) {
+        int byPrice = Double.compare(priceA, priceB);
+        return byPrice != 0 ? byPrice : Integer.compare(idA, idB);
+    }
+
+    // First index whose price is >= value
+    private static int lowerBound(double[] values, int length, double value) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
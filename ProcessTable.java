@@ -0,0 +1,373 @@
+package com.example.demo.threads;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Per-process CPU, RSS, threads and I/O for every PID on the host. Entries are
+// cached between refreshes: a /proc listing tells which PIDs still exist, stat
+// is re-read for active processes every tick but for idle ones only every
+// IDLE_STRIDE ticks, and status, io and the command line are only fetched for
+// new processes or ones whose CPU time or RSS moved. When a refresh overruns
+// REFRESH_BUDGET_MILLIS the idle stride doubles, and it relaxes back once
+// refreshes are cheap again.
+class ProcessTable {
+    private static final Path PROC = Paths.get("/proc");
+    // USER_HZ; the kernel reports utime/stime in these ticks on every mainstream arch
+    private static final int CLOCK_TICKS = 100;
+    private static final long PAGE_SIZE = pageSize();
+    private static final int IDLE_TICKS = 3;
+    private static final int IDLE_STRIDE = 4;
+    private static final int MAX_IDLE_STRIDE = 64;
+    private static final double REFRESH_BUDGET_MILLIS = 20;
+
+    static final class Entry {
+        final long pid;
+        final Path statPath;
+        final Path statusPath;
+        final Path ioPath;
+        String command;
+        long startTicks;
+        long cpuTicks;
+        long rssBytes;
+        long swapBytes;
+        int threads;
+        long readBytes;
+        long writeBytes;
+        // NaN until a second reading of a new process gives an interval to measure over
+        double cpuPercent = Double.NaN;
+        double readBytesPerSec;
+        double writeBytesPerSec;
+        boolean ioReadable = true;
+        int idleTicks;
+        long lastSampleNanos;
+        long generation;
+
+        Entry(long pid) {
+            this.pid = pid;
+            Path dir = Paths.get("/proc", Long.toString(pid));
+            this.statPath = dir.resolve("stat");
+            this.statusPath = dir.resolve("status");
+            this.ioPath = dir.resolve("io");
+        }
+    }
+
+    enum SortKey {
+        // Unmeasured new processes sort below idle ones
+        CPU(Comparator.comparingDouble(e -> Double.isNaN(e.cpuPercent) ? -1 : e.cpuPercent)),
+        MEMORY(Comparator.comparingLong(e -> e.rssBytes)),
+        IO(Comparator.comparingDouble(e -> e.readBytesPerSec + e.writeBytesPerSec)),
+        THREADS(Comparator.comparingInt(e -> e.threads));
+
+        final Comparator<Entry> order;
+
+        SortKey(Comparator<Entry> order) {
+            this.order = order;
+        }
+    }
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+    private final boolean procfs = Files.isReadable(PROC.resolve("self/stat"));
+    private long generation;
+    private int idleStride = IDLE_STRIDE;
+    private double lastRefreshMillis;
+    private int statReads;
+    private int pos;
+    private int limit;
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized double lastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+
+    // Processes whose stat file was read in the last refresh
+    synchronized int lastStatReads() {
+        return statReads;
+    }
+
+    // Idle processes are re-read once every this many refreshes
+    synchronized int idleStride() {
+        return idleStride;
+    }
+
+    synchronized void refresh() {
+        long start = System.nanoTime();
+        long current = ++generation;
+        statReads = 0;
+
+        if (procfs) {
+            // ProcessHandle.allProcesses() reads every stat file itself; listing /proc avoids paying twice.
+            // File.list() hands back plain names, without building a Path per entry.
+            String[] names = PROC.toFile().list();
+            if (names == null) {
+                return;
+            }
+            for (String name : names) {
+                long pid = parsePid(name);
+                if (pid >= 0) {
+                    Entry entry = entry(pid, current);
+                    boolean fresh = entry.lastSampleNanos == 0;
+                    // Idle processes are re-checked in a staggered stride instead of every tick
+                    if (fresh || entry.idleTicks < IDLE_TICKS || (pid + current) % idleStride == 0) {
+                        updateFromProc(entry, fresh, start);
+                    } else {
+                        entry.cpuPercent = 0;
+                    }
+                }
+            }
+        } else {
+            ProcessHandle.allProcesses().forEach(handle -> {
+                Entry entry = entry(handle.pid(), current);
+                updateFromHandle(entry, handle, entry.lastSampleNanos == 0, start);
+            });
+        }
+        entries.values().removeIf(entry -> entry.generation != current);
+
+        lastRefreshMillis = (System.nanoTime() - start) / 1e6;
+        // The first refresh reads everything once and says nothing about the steady state
+        if (current > 1 && lastRefreshMillis > REFRESH_BUDGET_MILLIS) {
+            idleStride = Math.min(MAX_IDLE_STRIDE, idleStride * 2);
+        } else if (lastRefreshMillis < REFRESH_BUDGET_MILLIS / 2) {
+            idleStride = Math.max(IDLE_STRIDE, idleStride / 2);
+        }
+    }
+
+    // The kernel reports RSS in pages. Java has no portable page size query, so compare our own
+    // RSS in pages (/proc/self/stat field 24) with the same figure in kB (/proc/self/status VmRSS).
+    private static long pageSize() {
+        try {
+            for (int attempt = 0; attempt < 3; attempt++) {
+                String stat = new String(Files.readAllBytes(PROC.resolve("self/stat")), StandardCharsets.US_ASCII);
+                String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                long rssPages = Long.parseLong(fields[21]);
+                long rssKb = 0;
+                for (String line : Files.readAllLines(PROC.resolve("self/status"), StandardCharsets.US_ASCII)) {
+                    if (line.startsWith("VmRSS:")) {
+                        rssKb = Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+                    }
+                }
+                if (rssPages > 0 && rssKb > 0) {
+                    // RSS can move between the two reads; page sizes are powers of two, so round to one
+                    double ratio = rssKb * 1024.0 / rssPages;
+                    long lower = Long.highestOneBit((long) ratio);
+                    long pageSize = ratio - lower < lower * 2 - ratio ? lower : lower * 2;
+                    if (Math.abs(ratio - pageSize) < pageSize * 0.1) {
+                        return pageSize;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux, or an unexpected format
+        }
+        return 4096;
+    }
+
+    private Entry entry(long pid, long current) {
+        Entry entry = entries.get(pid);
+        if (entry == null) {
+            entry = new Entry(pid);
+            entries.put(pid, entry);
+        }
+        entry.generation = current;
+        return entry;
+    }
+
+    private static long parsePid(String name) {
+        long pid = 0;
+        for (int i = 0; i < name.length(); i++) {
+            int digit = name.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            pid = pid * 10 + digit;
+        }
+        return name.isEmpty() ? -1 : pid;
+    }
+
+    // Smallest-first heap of size k, so a refresh costs O(n log k) instead of a full sort
+    synchronized List<Entry> top(int k, SortKey key) {
+        PriorityQueue<Entry> heap = new PriorityQueue<>(k + 1, key.order);
+        for (Entry entry : entries.values()) {
+            if (heap.size() < k) {
+                heap.add(entry);
+            } else if (key.order.compare(entry, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+        List<Entry> result = new ArrayList<>(heap);
+        result.sort(key.order.reversed());
+        return result;
+    }
+
+    private void updateFromProc(Entry entry, boolean fresh, long now) {
+        statReads++;
+        if (!read(entry.statPath)) {
+            return;
+        }
+        double seconds = (now - entry.lastSampleNanos) / 1e9;
+        entry.lastSampleNanos = now;
+        // pid (comm) state ppid ... ; comm may contain spaces and parentheses, so start after the last ')'
+        int paren = limit - 1;
+        while (paren > 0 && buffer.get(paren) != ')') {
+            paren--;
+        }
+        int close = paren;
+        pos = close + 2;
+        skipFields(11);                    // state .. cmajflt (fields 3-13)
+        long utime = parseLong();          // 14
+        long stime = parseLong();          // 15
+        skipFields(4);                     // cutime cstime priority nice
+        int threads = (int) parseLong();   // 20
+        skipFields(1);                     // itrealvalue
+        long startTicks = parseLong();     // 22
+        skipFields(1);                     // vsize
+        long rssBytes = parseLong() * PAGE_SIZE;   // 24
+
+        // A recycled PID is a different process
+        if (!fresh && startTicks != entry.startTicks) {
+            fresh = true;
+            entry.ioReadable = true;
+        }
+        long cpuTicks = utime + stime;
+        boolean changed = fresh || cpuTicks != entry.cpuTicks || rssBytes != entry.rssBytes;
+
+        entry.cpuPercent = !fresh && seconds > 0
+                ? (cpuTicks - entry.cpuTicks) * 100.0 / CLOCK_TICKS / seconds : Double.NaN;
+        entry.cpuTicks = cpuTicks;
+        entry.rssBytes = rssBytes;
+        entry.threads = threads;
+        entry.startTicks = startTicks;
+        entry.idleTicks = changed ? 0 : entry.idleTicks + 1;
+
+        if (fresh) {
+            String comm = commFromStat(close);
+            entry.command = ProcessHandle.of(entry.pid)
+                    .flatMap(handle -> handle.info().command())
+                    .orElse(comm);
+        }
+        if (!changed) {
+            entry.readBytesPerSec = 0;
+            entry.writeBytesPerSec = 0;
+            return;
+        }
+
+        if (read(entry.statusPath)) {
+            entry.swapBytes = findField("VmSwap:") * 1024;
+        }
+        if (entry.ioReadable) {
+            // Other users' io files need CAP_SYS_PTRACE; stop trying once denied
+            entry.ioReadable = read(entry.ioPath);
+            if (entry.ioReadable) {
+                long readBytes = findField("read_bytes:");
+                long writeBytes = findField("write_bytes:");
+                if (!fresh && seconds > 0) {
+                    entry.readBytesPerSec = (readBytes - entry.readBytes) / seconds;
+                    entry.writeBytesPerSec = (writeBytes - entry.writeBytes) / seconds;
+                }
+                entry.readBytes = readBytes;
+                entry.writeBytes = writeBytes;
+            }
+        }
+    }
+
+    // Portable fallback: CPU time only, RSS and I/O are not exposed by ProcessHandle
+    private void updateFromHandle(Entry entry, ProcessHandle handle, boolean fresh, long now) {
+        double seconds = (now - entry.lastSampleNanos) / 1e9;
+        entry.lastSampleNanos = now;
+        ProcessHandle.Info info = handle.info();
+        long cpuTicks = info.totalCpuDuration().map(d -> d.toMillis() * CLOCK_TICKS / 1000).orElse(0L);
+        entry.cpuPercent = !fresh && seconds > 0
+                ? (cpuTicks - entry.cpuTicks) * 100.0 / CLOCK_TICKS / seconds : Double.NaN;
+        entry.cpuTicks = cpuTicks;
+        if (fresh) {
+            entry.command = info.command().orElse("?");
+        }
+    }
+
+    private String commFromStat(int close) {
+        int open = 0;
+        while (open < close && buffer.get(open) != '(') {
+            open++;
+        }
+        StringBuilder comm = new StringBuilder();
+        for (int i = open + 1; i < close; i++) {
+            comm.append((char) buffer.get(i));
+        }
+        return "[" + comm + "]";
+    }
+
+    // The process may exit between listing and reading; that is not an error
+    private boolean read(Path file) {
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0 && buffer.hasRemaining()) {
+                // keep filling
+            }
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+        pos = 0;
+        limit = buffer.position();
+        return limit > 0;
+    }
+
+    // Value of a "Key:   123 kB" style line, or 0 when absent
+    private long findField(String key) {
+        pos = 0;
+        while (pos < limit) {
+            int lineStart = pos;
+            boolean match = lineStart + key.length() <= limit;
+            for (int i = 0; match && i < key.length(); i++) {
+                match = buffer.get(lineStart + i) == key.charAt(i);
+            }
+            if (match) {
+                pos = lineStart + key.length();
+                return parseLong();
+            }
+            while (pos < limit && buffer.get(pos) != '\n') {
+                pos++;
+            }
+            pos++;
+        }
+        return 0;
+    }
+
+    private void skipFields(int count) {
+        for (int i = 0; i < count; i++) {
+            while (pos < limit && buffer.get(pos) == ' ') {
+                pos++;
+            }
+            while (pos < limit && buffer.get(pos) != ' ') {
+                pos++;
+            }
+        }
+    }
+
+    private long parseLong() {
+        while (pos < limit && (buffer.get(pos) == ' ' || buffer.get(pos) == '\t')) {
+            pos++;
+        }
+        boolean negative = pos < limit && buffer.get(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = 0;
+        while (pos < limit) {
+            int digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            value = value * 10 + digit;
+            pos++;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.demo.searchsystem.index;
+
+// Result orderings over ProductStore rows. Names match SortOption so a
+// SortOption maps across with ProductOrder.valueOf(option.name()). Ties are
+// broken by product ordinal, which keeps pages stable between requests.
+public enum ProductOrder {
+    NAME_ASC, NAME_DESC, PRICE_ASC, PRICE_DESC, RATING_ASC, RATING_DESC;
+
+    // Negative if a comes before b in this order
+    public int compare(ProductStore store, int a, int b) {
+        int result;
+        switch (this) {
+            case NAME_ASC:
+            case NAME_DESC:
+                result = String.CASE_INSENSITIVE_ORDER.compare(store.name(a), store.name(b));
+                break;
+            case PRICE_ASC:
+            case PRICE_DESC:
+                result = Double.compare(store.price(a), store.price(b));
+                break;
+            default:
+                result = Float.compare(store.rating(a), store.rating(b));
+                break;
+        }
+        if (isDescending()) {
+            result = -result;
+        }
+        return result != 0 ? result : Integer.compare(a, b);
+    }
+
+    public boolean isDescending() {
+        return this == NAME_DESC || this == PRICE_DESC || this == RATING_DESC;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+// A conjunction of product conditions, e.g. "Electronics, 4.5+ rating, under
+// $500, name contains 'wireless'". Unset conditions do not filter. Evaluated by
+// QueryPlanner.
+public class ProductQuery {
+    private String name;
+    private String category;
+    private double minRating = Double.NaN;
+    private double minPrice = Double.NEGATIVE_INFINITY;
+    private double maxPrice = Double.POSITIVE_INFINITY;
+
+    // Every word of text must appear in the product name
+    public ProductQuery nameContains(String text) {
+        this.name = text;
+        return this;
+    }
+
+    public ProductQuery category(String category) {
+        this.category = category;
+        return this;
+    }
+
+    public ProductQuery minRating(double minRating) {
+        this.minRating = minRating;
+        return this;
+    }
+
+    public ProductQuery priceBetween(double minPrice, double maxPrice) {
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        return this;
+    }
+
+    public ProductQuery priceAtMost(double maxPrice) {
+        this.maxPrice = maxPrice;
+        return this;
+    }
+
+    public ProductQuery priceAtLeast(double minPrice) {
+        this.minPrice = minPrice;
+        return this;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String category() {
+        return category;
+    }
+
+    public double minRating() {
+        return minRating;
+    }
+
+    public double minPrice() {
+        return minPrice;
+    }
+
+    public double maxPrice() {
+        return maxPrice;
+    }
+
+    public boolean hasName() {
+        return name != null && !Tokenizer.tokens(name).isEmpty();
+    }
+
+    public boolean hasCategory() {
+        return category != null;
+    }
+
+    public boolean hasRating() {
+        return !Double.isNaN(minRating);
+    }
+
+    public boolean hasPrice() {
+        return minPrice != Double.NEGATIVE_INFINITY || maxPrice != Double.POSITIVE_INFINITY;
+    }
+
+    // Row-level evaluation, for checking one product without the indexes (e.g. cache invalidation)
+    public boolean matches(String productName, String productCategory, double price, double rating) {
+        if (hasName() && !Tokenizer.tokens(productName).containsAll(Tokenizer.tokens(name))) {
+            return false;
+        }
+        if (hasCategory() && !category.equalsIgnoreCase(productCategory)) {
+            return false;
+        }
+        if (hasRating() && (float) rating < (float) minRating) {
+            return false;
+        }
+        return price >= minPrice && price <= maxPrice;
+    }
+
+    // Conditions in canonical, lossless form: equal keys match exactly the same products. Name words
+    // are sorted and deduplicated (all must appear, in any order), and the rating is keyed at the
+    // float precision matches() compares it with.
+    String cacheKey() {
+        StringBuilder key = new StringBuilder();
+        if (hasName()) {
+            key.append(String.join(" ", new TreeSet<>(Tokenizer.tokens(name))));
+        }
+        key.append('\u0000');
+        if (hasCategory()) {
+            // Marked, so category("") is not the same key as no category
+            key.append('=').append(category.toLowerCase(Locale.ROOT));
+        }
+        key.append('\u0000');
+        if (hasRating()) {
+            key.append((float) minRating);
+        }
+        return key.append('\u0000').append(minPrice).append('\u0000').append(maxPrice).toString();
+    }
+
+    ProductQuery copy() {
+        ProductQuery copy = new ProductQuery();
+        copy.name = name;
+        copy.category = category;
+        copy.minRating = minRating;
+        copy.minPrice = minPrice;
+        copy.maxPrice = maxPrice;
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        if (hasName()) {
+            parts.add("name contains \"" + name + "\"");
+        }
+        if (hasCategory()) {
+            parts.add("category = " + category);
+        }
+        if (hasRating()) {
+            parts.add("rating >= " + minRating);
+        }
+        if (hasPrice()) {
+            parts.add(describePrice(minPrice, maxPrice));
+        }
+        return parts.isEmpty() ? "all products" : String.join(" AND ", parts);
+    }
+
+    static String describePrice(double min, double max) {
+        if (min == Double.NEGATIVE_INFINITY) {
+            return String.format(Locale.ROOT, "price <= %.2f", max);
+        }
+        if (max == Double.POSITIVE_INFINITY) {
+            return String.format(Locale.ROOT, "price >= %.2f", min);
+        }
+        return String.format(Locale.ROOT, "%.2f <= price <= %.2f", min, max);
+    }
+}
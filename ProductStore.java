@@ -0,0 +1,197 @@
+package com.example.demo.searchsystem.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Column-oriented product storage: one primitive array per attribute instead
+// of a List of Product objects. A price or rating scan walks a single
+// contiguous array, categories are dictionary-encoded to int ids so a
+// category scan compares ints, and names sit back to back as UTF-8 in one
+// byte[] addressed by an offsets array. Rows are product ordinals.
+//
+// The scan methods mirror the search strategies: linear (name contains),
+// binary (exact price), category and rating (minimum rating).
+public class ProductStore {
+    private double[] prices = new double[1024];
+    private float[] ratings = new float[1024];
+    private int[] categoryIds = new int[1024];
+    private int[] nameOffsets = new int[1025];
+    private byte[] names = new byte[16 * 1024];
+    // Rows whose name has a non-ASCII character; the byte scan only lower-cases ASCII
+    private final BitSet nonAsciiNames = new BitSet();
+    private final Map<String, Integer> categoryDictionary = new HashMap<>();
+    private final List<String> categories = new ArrayList<>();
+    private int size;
+
+    // Returns the new product's ordinal
+    public int add(String name, String category, double price, double rating) {
+        if (size == prices.length) {
+            int capacity = size * 2;
+            prices = Arrays.copyOf(prices, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+        }
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        int start = nameOffsets[size];
+        if (start + encoded.length > names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, start + encoded.length));
+        }
+        System.arraycopy(encoded, 0, names, start, encoded.length);
+        nameOffsets[size + 1] = start + encoded.length;
+        if (encoded.length != name.length()) {
+            nonAsciiNames.set(size);
+        }
+
+        prices[size] = price;
+        ratings[size] = (float) rating;
+        categoryIds[size] = categoryDictionary.computeIfAbsent(category.toLowerCase(Locale.ROOT), key -> {
+            categories.add(category);
+            return categories.size() - 1;
+        });
+        return size++;
+    }
+
+    public void updatePrice(int id, double price) {
+        prices[id] = price;
+    }
+
+    public void updateRating(int id, double rating) {
+        ratings[id] = (float) rating;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int id) {
+        return new String(names, nameOffsets[id], nameOffsets[id + 1] - nameOffsets[id], StandardCharsets.UTF_8);
+    }
+
+    public String category(int id) {
+        return categories.get(categoryIds[id]);
+    }
+
+    public double price(int id) {
+        return prices[id];
+    }
+
+    public float rating(int id) {
+        return ratings[id];
+    }
+
+    public int categoryCount() {
+        return categories.size();
+    }
+
+    public long sizeInBytes() {
+        return (long) prices.length * (Double.BYTES + Float.BYTES + Integer.BYTES + Integer.BYTES) + names.length;
+    }
+
+    // Linear strategy: case-insensitive substring match on the raw UTF-8 bytes, no String per row.
+    // Matches String.toLowerCase(Locale.ROOT).contains: ASCII names are lower-cased byte by byte,
+    // the few names with other characters are decoded and lower-cased in full.
+    public int[] nameContains(String text) {
+        String lowered = text.toLowerCase(Locale.ROOT);
+        byte[] needle = lowered.getBytes(StandardCharsets.UTF_8);
+        IdBuffer result = new IdBuffer();
+        if (needle.length == 0) {
+            for (int id = 0; id < size; id++) {
+                result.add(id);
+            }
+            return result.toArray();
+        }
+        byte first = needle[0];
+        for (int id = 0; id < size; id++) {
+            if (nonAsciiNames.get(id)) {
+                if (name(id).toLowerCase(Locale.ROOT).contains(lowered)) {
+                    result.add(id);
+                }
+                continue;
+            }
+            int last = nameOffsets[id + 1] - needle.length;
+            for (int i = nameOffsets[id]; i <= last; i++) {
+                if (lower(names[i]) == first && matchesAt(i, needle)) {
+                    result.add(id);
+                    break;
+                }
+            }
+        }
+        return result.toArray();
+    }
+
+    // Binary strategy: exact price match
+    public int[] priceEquals(double price) {
+        return priceBetween(price, price);
+    }
+
+    public int[] priceBetween(double min, double max) {
+        IdBuffer result = new IdBuffer();
+        for (int id = 0; id < size; id++) {
+            double price = prices[id];
+            // Non-short-circuit &: the lower bound alone is a coin flip on random prices and mispredicts
+            if (price >= min & price <= max) {
+                result.add(id);
+            }
+        }
+        return result.toArray();
+    }
+
+    // Category strategy: one dictionary lookup, then an int comparison per row
+    public int[] inCategory(String category) {
+        Integer categoryId = categoryDictionary.get(category.toLowerCase(Locale.ROOT));
+        if (categoryId == null) {
+            return new int[0];
+        }
+        int wanted = categoryId;
+        IdBuffer result = new IdBuffer();
+        for (int id = 0; id < size; id++) {
+            if (categoryIds[id] == wanted) {
+                result.add(id);
+            }
+        }
+        return result.toArray();
+    }
+
+    // Rating strategy: minimum rating
+    public int[] ratingAtLeast(double minRating) {
+        float threshold = (float) minRating;
+        IdBuffer result = new IdBuffer();
+        for (int id = 0; id < size; id++) {
+            if (ratings[id] >= threshold) {
+                result.add(id);
+            }
+        }
+        return result.toArray();
+    }
+
+    private boolean matchesAt(int position, byte[] needle) {
+        for (int j = 1; j < needle.length; j++) {
+            if (lower(names[position + j]) != needle[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ASCII lower-casing, which is all nameContains applies it to
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static final class IdBuffer {
+        private int[] ids = new int[64];
+        private int count;
+
+        void add(int id) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, count);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.demo.threads;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Serves MetricHistory in the Prometheus text exposition format.
+// Each series keeps its encoded line and is only re-encoded when its version
+// changes; the assembled body is shared by every scrape until the next refresh.
+class PrometheusExporter {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final class Line {
+        final MetricHistory.Series series;
+        final String family;
+        final byte[] typeBytes;
+        long version = -1;
+        byte[] bytes;
+
+        Line(MetricHistory.Series series) {
+            this.series = series;
+            int brace = series.key().indexOf('{');
+            this.family = brace < 0 ? series.key() : series.key().substring(0, brace);
+            String type = family.endsWith("_total") ? "counter" : "gauge";
+            this.typeBytes = ("# TYPE " + family + " " + type + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private final MetricHistory metrics;
+    private final long refreshMillis;
+    private final SortedMap<String, Line> lines = new TreeMap<>();
+    private volatile byte[] body = new byte[0];
+    private volatile long lastRender;
+    private byte[] scratch = new byte[16 * 1024];
+    private HttpServer server;
+    private ExecutorService executor;
+
+    PrometheusExporter(MetricHistory metrics, long refreshMillis) {
+        this.metrics = metrics;
+        this.refreshMillis = refreshMillis;
+    }
+
+    synchronized void start(int port) {
+        if (server != null) {
+            return;
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot bind port " + port + ": " + e.getMessage(), e);
+        }
+        executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "prometheus-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+        }
+    }
+
+    synchronized int port() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    byte[] body() {
+        if (System.currentTimeMillis() - lastRender >= refreshMillis) {
+            render();
+        }
+        return body;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] payload = body();
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, payload.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(payload);
+            }
+        }
+    }
+
+    private synchronized void render() {
+        long now = System.currentTimeMillis();
+        if (now - lastRender < refreshMillis) {
+            return;
+        }
+
+        boolean changed = false;
+        for (MetricHistory.Series series : metrics.all()) {
+            if (!lines.containsKey(series.key())) {
+                lines.put(series.key(), new Line(series));
+                changed = true;
+            }
+        }
+
+        int length = 0;
+        String family = null;
+        for (Line line : lines.values()) {
+            long version = line.series.version();
+            if (version != line.version) {
+                line.bytes = (line.series.key() + " " + formatValue(line.series.latest()) + "\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                line.version = version;
+                changed = true;
+            }
+            if (!line.family.equals(family)) {
+                family = line.family;
+                length = append(length, line.typeBytes);
+            }
+            length = append(length, line.bytes);
+        }
+
+        if (changed) {
+            body = Arrays.copyOf(scratch, length);
+        }
+        lastRender = now;
+    }
+
+    private int append(int length, byte[] bytes) {
+        if (length + bytes.length > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, length + bytes.length));
+        }
+        System.arraycopy(bytes, 0, scratch, length, bytes.length);
+        return length + bytes.length;
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
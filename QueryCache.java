@@ -0,0 +1,251 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+// Bounded LRU cache of search results keyed by (strategy, normalized query,
+// sort), or by a ProductQuery's exact conditions. Each entry keeps a Matcher
+// derived from the same query, describing which products it can return, so
+// invalidation is precise: an added product drops only the entries it
+// matches, and a changed product drops the entries that matched it before or
+// after the change, including every cached result showing its old price.
+//
+// A search that raced with a change must not repopulate the cache with its
+// stale answer, so put() takes the version() read before the search started.
+// Recent changes are logged with their version, and the put is ignored only
+// if one made since then touches a product the query can return; changes to
+// unrelated products do not cost the entry.
+public class QueryCache {
+    private static final int CHANGE_LOG_SIZE = 1024;
+
+    // Whether a query could return a product with these attributes
+    public interface Matcher {
+        boolean matches(String name, String category, double price, double rating);
+    }
+
+    private static final class Entry {
+        final Matcher matcher;
+        final int[] result;
+
+        Entry(Matcher matcher, int[] result) {
+            this.matcher = matcher;
+            this.result = result;
+        }
+    }
+
+    // A product as it was before and after one change (the same for an addition)
+    private static final class Change {
+        final long version;
+        final String name;
+        final String category;
+        final double oldPrice;
+        final double oldRating;
+        final double newPrice;
+        final double newRating;
+
+        Change(long version, String name, String category, double oldPrice, double oldRating, double newPrice,
+                double newRating) {
+            this.version = version;
+            this.name = name;
+            this.category = category;
+            this.oldPrice = oldPrice;
+            this.oldRating = oldRating;
+            this.newPrice = newPrice;
+            this.newRating = newRating;
+        }
+
+        boolean affects(Matcher matcher) {
+            return matcher.matches(name, category, oldPrice, oldRating)
+                    || matcher.matches(name, category, newPrice, newRating);
+        }
+    }
+
+    private final Map<String, Entry> entries;
+    private final Deque<Change> changes = new ArrayDeque<>();
+    private long version;
+    // Changes up to this version are no longer in the log; puts observed before it cannot be checked
+    private long forgottenVersion;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private long stalePuts;
+
+    public QueryCache(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Matchers for the single-strategy searches: linear, binary, category and rating
+    public static Matcher forStrategy(String strategy, String query) {
+        String text = normalize(query);
+        switch (strategy.toLowerCase(Locale.ROOT)) {
+            case "linear":
+                return (name, category, price, rating) -> name.toLowerCase(Locale.ROOT).contains(text);
+            case "binary": {
+                double wanted = Double.parseDouble(text);
+                return (name, category, price, rating) -> price == wanted;
+            }
+            case "category":
+                return (name, category, price, rating) -> category.equalsIgnoreCase(text);
+            case "rating": {
+                float minRating = Float.parseFloat(text);
+                return (name, category, price, rating) -> (float) rating >= minRating;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown search strategy: " + strategy);
+        }
+    }
+
+    // Case and whitespace differences do not make a different query
+    public static String normalize(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    // Cached ids or null; the array is shared between hits, so callers must not modify it
+    public synchronized int[] get(String strategy, String query, String sort) {
+        return lookup(key(strategy, query, sort));
+    }
+
+    public synchronized int[] get(ProductQuery query, String sort) {
+        return lookup(key(query, sort));
+    }
+
+    // The matcher comes from the same strategy and query as the key, so the two cannot disagree
+    public synchronized void put(String strategy, String query, String sort, int[] result, long observedVersion) {
+        store(key(strategy, query, sort), forStrategy(strategy, query), result, observedVersion);
+    }
+
+    // Keyed on the query's exact conditions; the matcher evaluates a copy, so later changes to query do not leak in
+    public synchronized void put(ProductQuery query, String sort, int[] result, long observedVersion) {
+        store(key(query, sort), query.copy()::matches, result, observedVersion);
+    }
+
+    public synchronized void productAdded(String name, String category, double price, double rating) {
+        apply(new Change(++version, name, category, price, rating, price, rating));
+    }
+
+    // Price or rating change: both the queries that showed the old values and those the new values now match
+    public synchronized void productChanged(String name, String category, double oldPrice, double oldRating,
+            double newPrice, double newRating) {
+        apply(new Change(++version, name, category, oldPrice, oldRating, newPrice, newRating));
+    }
+
+    public synchronized void clear() {
+        version++;
+        forgottenVersion = version;
+        changes.clear();
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    // Results dropped because a change landed while they were being computed
+    public synchronized long stalePuts() {
+        return stalePuts;
+    }
+
+    public synchronized double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("QueryCache[size=%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, "
+                + "invalidations=%d, stalePuts=%d]", entries.size(), hits, misses, hitRate() * 100, evictions,
+                invalidations, stalePuts);
+    }
+
+    private int[] lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    private void store(String key, Matcher matcher, int[] result, long observedVersion) {
+        if (observedVersion < forgottenVersion || racedWith(matcher, observedVersion)) {
+            stalePuts++;
+            return;
+        }
+        entries.put(key, new Entry(matcher, result));
+    }
+
+    // Whether a change made after observedVersion touches a product this matcher can return
+    private boolean racedWith(Matcher matcher, long observedVersion) {
+        Iterator<Change> newestFirst = changes.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Change change = newestFirst.next();
+            if (change.version <= observedVersion) {
+                return false;
+            }
+            if (change.affects(matcher)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void apply(Change change) {
+        changes.addLast(change);
+        if (changes.size() > CHANGE_LOG_SIZE) {
+            forgottenVersion = changes.removeFirst().version;
+        }
+        invalidateWhere(entry -> change.affects(entry.matcher));
+    }
+
+    // A few thousand entries: checking each matcher is microseconds, cheaper than maintaining a reverse index
+    private void invalidateWhere(Predicate<Entry> stale) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (stale.test(iterator.next())) {
+                iterator.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    private static String key(String strategy, String query, String sort) {
+        return strategy.toLowerCase(Locale.ROOT) + '\u0000' + normalize(query) + '\u0000' + sort;
+    }
+
+    // Not toString(): it rounds prices to cents, so priceAtMost(499.999) and priceAtMost(500) would share a key
+    private static String key(ProductQuery query, String sort) {
+        return "query\u0000" + query.cacheKey() + '\u0000' + sort;
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.*;
+
+// Cost-based evaluation of a ProductQuery over the name, facet and price
+// indexes. Each condition's row count is estimated from index statistics
+// (rarest term's document frequency, category and rating bucket sizes, price
+// index range count). The most selective condition is materialised as the
+// driving id list, and the remaining ones are probed per candidate in order of
+// selectivity, so the expensive indexes only see ids that are still alive.
+public class QueryPlanner {
+    private final InvertedIndex names;
+    private final FacetIndex facets;
+    private final PriceIndex prices;
+
+    public QueryPlanner(InvertedIndex names, FacetIndex facets, PriceIndex prices) {
+        this.names = names;
+        this.facets = facets;
+        this.prices = prices;
+    }
+
+    public Plan plan(ProductQuery query) {
+        // An inverted (or NaN) price range matches nothing; planning just that step fetches no ids
+        // and skips probing the other indexes
+        if (query.hasPrice() && !(query.minPrice() <= query.maxPrice())) {
+            Step empty = new PriceStep(prices, query.minPrice(), query.maxPrice());
+            return new Plan(query, Collections.singletonList(empty), facets.productCount());
+        }
+        List<Step> steps = new ArrayList<>();
+        if (query.hasName()) {
+            steps.add(new NameStep(names, query.name()));
+        }
+        if (query.hasCategory()) {
+            steps.add(new CategoryStep(facets, query.category()));
+        }
+        if (query.hasRating()) {
+            steps.add(new RatingStep(facets, query.minRating()));
+        }
+        if (query.hasPrice()) {
+            steps.add(new PriceStep(prices, query.minPrice(), query.maxPrice()));
+        }
+        steps.sort(Comparator.comparingInt(step -> step.estimate));
+        return new Plan(query, steps, facets.productCount());
+    }
+
+    // Matching product ids in ascending order
+    public int[] search(ProductQuery query) {
+        return plan(query).execute();
+    }
+
+    public static final class Plan {
+        private final ProductQuery query;
+        private final List<Step> steps;
+        private final int productCount;
+        private long elapsedNanos = -1;
+        private int resultCount;
+
+        private Plan(ProductQuery query, List<Step> steps, int productCount) {
+            this.query = query;
+            this.steps = steps;
+            this.productCount = productCount;
+        }
+
+        public int[] execute() {
+            long start = System.nanoTime();
+            int[] candidates;
+            int count;
+            if (steps.isEmpty()) {
+                candidates = new int[productCount];
+                for (int id = 0; id < productCount; id++) {
+                    candidates[id] = id;
+                }
+                count = productCount;
+            } else {
+                candidates = steps.get(0).fetch();
+                count = candidates.length;
+                steps.get(0).rows = count;
+                for (int i = 1; i < steps.size(); i++) {
+                    Step step = steps.get(i);
+                    count = count == 0 ? 0 : step.filter(candidates, count);
+                    step.rows = count;
+                }
+            }
+            elapsedNanos = System.nanoTime() - start;
+            resultCount = count;
+            return count == candidates.length ? candidates : Arrays.copyOf(candidates, count);
+        }
+
+        // Chosen order with estimated rows, plus actual rows and time once executed
+        public String explain() {
+            StringBuilder out = new StringBuilder("Query: ").append(query).append('\n');
+            if (steps.isEmpty()) {
+                out.append(String.format("  scan   all products %35s %,10d\n", "", productCount));
+            }
+            for (int i = 0; i < steps.size(); i++) {
+                Step step = steps.get(i);
+                out.append(String.format("  %-6s %-40s est %,10d  rows %10s\n", i == 0 ? "drive" : "probe",
+                        step.description, step.estimate, step.rows < 0 ? "-" : String.format("%,d", step.rows)));
+            }
+            if (elapsedNanos >= 0) {
+                out.append(String.format("  result %,d products in %.3f ms\n", resultCount, elapsedNanos / 1e6));
+            }
+            return out.toString();
+        }
+    }
+
+    private abstract static class Step {
+        final String description;
+        final int estimate;
+        int rows = -1;
+
+        Step(String description, int estimate) {
+            this.description = description;
+            this.estimate = estimate;
+        }
+
+        // All matching ids, ascending
+        abstract int[] fetch();
+
+        // Compacts the first count candidates (ascending) to those that match; returns the new count
+        abstract int filter(int[] candidates, int count);
+    }
+
+    private static final class NameStep extends Step {
+        private final InvertedIndex names;
+        private final String text;
+
+        NameStep(InvertedIndex names, String text) {
+            super("name contains \"" + text + "\"", estimate(names, text));
+            this.names = names;
+            this.text = text;
+        }
+
+        // AND of the terms matches at most the rarest term's postings
+        private static int estimate(InvertedIndex names, String text) {
+            int rarest = Integer.MAX_VALUE;
+            for (String term : Tokenizer.tokens(text)) {
+                rarest = Math.min(rarest, names.documentFrequency(term));
+            }
+            return rarest;
+        }
+
+        @Override
+        int[] fetch() {
+            return names.and(text);
+        }
+
+        @Override
+        int filter(int[] candidates, int count) {
+            for (String term : new LinkedHashSet<>(Tokenizer.tokens(text))) {
+                PostingList postings = names.postings(term);
+                if (postings == null) {
+                    return 0;
+                }
+                // Candidates are ascending, so one cursor skips forward through the postings
+                PostingList.Cursor cursor = postings.cursor();
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    int doc = cursor.advance(candidates[i]);
+                    if (doc == PostingList.NO_MORE_DOCS) {
+                        break;
+                    }
+                    if (doc == candidates[i]) {
+                        candidates[kept++] = candidates[i];
+                    }
+                }
+                count = kept;
+            }
+            return count;
+        }
+    }
+
+    private static final class CategoryStep extends Step {
+        private final Bitmap members;
+
+        CategoryStep(FacetIndex facets, String category) {
+            super("category = " + category, facets.categoryCount(category));
+            this.members = facets.category(category);
+        }
+
+        @Override
+        int[] fetch() {
+            return members.toArray();
+        }
+
+        @Override
+        int filter(int[] candidates, int count) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (members.get(candidates[i])) {
+                    candidates[kept++] = candidates[i];
+                }
+            }
+            return kept;
+        }
+    }
+
+    private static final class RatingStep extends Step {
+        private final FacetIndex facets;
+        private final double minRating;
+
+        RatingStep(FacetIndex facets, double minRating) {
+            super("rating >= " + minRating, facets.estimateRatingAtLeast(minRating));
+            this.facets = facets;
+            this.minRating = minRating;
+        }
+
+        @Override
+        int[] fetch() {
+            return facets.ratingAtLeast(minRating).toArray();
+        }
+
+        @Override
+        int filter(int[] candidates, int count) {
+            float threshold = (float) minRating;
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (facets.rating(candidates[i]) >= threshold) {
+                    candidates[kept++] = candidates[i];
+                }
+            }
+            return kept;
+        }
+    }
+
+    private static final class PriceStep extends Step {
+        private final PriceIndex prices;
+        private final double min;
+        private final double max;
+
+        PriceStep(PriceIndex prices, double min, double max) {
+            super(ProductQuery.describePrice(min, max), prices.count(min, max));
+            this.prices = prices;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        int[] fetch() {
+            // The price index returns ids in price order; the other steps need them by id
+            int[] ids = prices.range(min, max);
+            Arrays.sort(ids);
+            return ids;
+        }
+
+        @Override
+        int filter(int[] candidates, int count) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                double price = prices.price(candidates[i]);
+                if (price >= min && price <= max) {
+                    candidates[kept++] = candidates[i];
+                }
+            }
+            return kept;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.*;
+
+// Relevance-ordered name search. Text relevance is BM25 over the
+// InvertedIndex postings, then a bounded boost is added for rating (higher is
+// better) and price (cheaper is better):
+//
+//   score = bm25 + ratingWeight * rating / 5 + priceWeight / (1 + price / pricePivot)
+//
+// The top K are found with WAND: each term has a score upper bound (its idf at
+// the term's highest tf and the shortest name that tf allows), and a product is only
+// scored if the bounds of the terms it could contain plus the maximum boost
+// beat the current K-th best. Products that cannot make the top K are skipped
+// through the posting lists without being scored.
+public class RankedSearch {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final InvertedIndex names;
+    private final ProductStore store;
+    private final double ratingWeight;
+    private final double priceWeight;
+    private final double pricePivot;
+
+    public static final class Result {
+        private final int[] ids;
+        private final double[] scores;
+        private final int matched;
+        private final int scored;
+
+        private Result(int[] ids, double[] scores, int matched, int scored) {
+            this.ids = ids;
+            this.scores = scores;
+            this.matched = matched;
+            this.scored = scored;
+        }
+
+        // Best first; equal scores keep the earlier product first
+        public int[] ids() {
+            return ids;
+        }
+
+        public double[] scores() {
+            return scores;
+        }
+
+        // Upper bound on products containing any query term (sum of document frequencies)
+        public int matched() {
+            return matched;
+        }
+
+        // Products whose full score was computed
+        public int scored() {
+            return scored;
+        }
+    }
+
+    public RankedSearch(InvertedIndex names, ProductStore store) {
+        this(names, store, 1.0, 0.5, 100);
+    }
+
+    public RankedSearch(InvertedIndex names, ProductStore store, double ratingWeight, double priceWeight,
+            double pricePivot) {
+        this.names = names;
+        this.store = store;
+        this.ratingWeight = ratingWeight;
+        this.priceWeight = priceWeight;
+        this.pricePivot = pricePivot;
+    }
+
+    public Result search(String query, int k) {
+        Term[] terms = terms(query);
+        Term[] queryOrder = terms.clone();
+        double maxBoost = ratingWeight + priceWeight;
+        TopScores top = new TopScores(k);
+        int scored = 0;
+        int matched = 0;
+        for (Term term : terms) {
+            matched += term.postings.size();
+            term.cursor.next();
+        }
+
+        int live = terms.length;
+        while (live > 0) {
+            sortByDoc(terms, live);
+            while (live > 0 && terms[live - 1].cursor.doc() == PostingList.NO_MORE_DOCS) {
+                live--;
+            }
+            // Pivot: the first term where the bounds so far could beat the current K-th score
+            double bound = maxBoost;
+            int pivot = -1;
+            for (int i = 0; i < live; i++) {
+                bound += terms[i].upperBound;
+                if (bound > top.threshold()) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot < 0) {
+                break;
+            }
+            int pivotDoc = terms[pivot].cursor.doc();
+            if (terms[0].cursor.doc() == pivotDoc) {
+                // Sum in query order, as searchExhaustive does, so both give bit-identical scores
+                double score = boost(pivotDoc);
+                for (Term term : queryOrder) {
+                    if (term.cursor.doc() == pivotDoc) {
+                        score += term.score(pivotDoc);
+                    }
+                }
+                for (int i = 0; i < live && terms[i].cursor.doc() == pivotDoc; i++) {
+                    terms[i].cursor.next();
+                }
+                scored++;
+                top.offer(pivotDoc, score);
+            } else {
+                // Nothing before pivotDoc can make the top K: skip the lagging list forward
+                terms[0].cursor.advance(pivotDoc);
+            }
+        }
+        return top.result(matched, scored);
+    }
+
+    // Scores every product containing a query term; the baseline WAND is measured against
+    public Result searchExhaustive(String query, int k) {
+        Term[] terms = terms(query);
+        TopScores top = new TopScores(k);
+        int matched = 0;
+        for (Term term : terms) {
+            matched += term.postings.size();
+        }
+        int[] candidates = names.or(Arrays.asList(queryTerms(terms)));
+        for (Term term : terms) {
+            term.cursor.next();
+        }
+        for (int doc : candidates) {
+            double score = boost(doc);
+            for (Term term : terms) {
+                if (term.cursor.advance(doc) == doc) {
+                    score += term.score(doc);
+                }
+            }
+            top.offer(doc, score);
+        }
+        return top.result(matched, candidates.length);
+    }
+
+    private double boost(int doc) {
+        double rating = Math.max(0, Math.min(5, store.rating(doc)));
+        return ratingWeight * rating / 5 + priceWeight / (1 + Math.max(0, store.price(doc)) / pricePivot);
+    }
+
+    private Term[] terms(String query) {
+        List<Term> terms = new ArrayList<>();
+        double averageLength = Math.max(1e-9, names.averageDocumentLength());
+        int documents = names.documentCount();
+        for (String token : new LinkedHashSet<>(Tokenizer.tokens(query))) {
+            PostingList postings = names.postings(token);
+            if (postings != null) {
+                terms.add(new Term(token, postings, documents, averageLength));
+            }
+        }
+        return terms.toArray(new Term[0]);
+    }
+
+    private static String[] queryTerms(Term[] terms) {
+        String[] result = new String[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            result[i] = terms[i].text;
+        }
+        return result;
+    }
+
+    // Insertion sort by current doc; queries have a handful of terms
+    private static void sortByDoc(Term[] terms, int live) {
+        for (int i = 1; i < live; i++) {
+            Term term = terms[i];
+            int j = i - 1;
+            while (j >= 0 && terms[j].cursor.doc() > term.cursor.doc()) {
+                terms[j + 1] = terms[j];
+                j--;
+            }
+            terms[j + 1] = term;
+        }
+    }
+
+    private final class Term {
+        final String text;
+        final PostingList postings;
+        final PostingList.Cursor cursor;
+        final double idf;
+        final double averageLength;
+        final double upperBound;
+
+        Term(String text, PostingList postings, int documents, double averageLength) {
+            this.text = text;
+            this.postings = postings;
+            this.cursor = postings.cursor();
+            this.averageLength = averageLength;
+            int df = postings.size();
+            this.idf = Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+            // A name holding the term tf times is at least tf tokens long, and the score grows with tf at
+            // that length, so the highest tf at length maxTf bounds every real score of this term
+            int maxTf = postings.maxTermFrequency();
+            this.upperBound = idf * maxTf * (K1 + 1) / (maxTf + K1 * (1 - B + B * maxTf / averageLength));
+        }
+
+        // Cursor must be on doc
+        double score(int doc) {
+            int tf = cursor.termFrequency();
+            double norm = K1 * (1 - B + B * names.documentLength(doc) / averageLength);
+            return idf * tf * (K1 + 1) / (tf + norm);
+        }
+    }
+
+    // Min-heap of the best k (doc, score) pairs; the root is the current K-th best
+    private static final class TopScores {
+        private final int k;
+        private final int[] docs;
+        private final double[] scores;
+        private int size;
+
+        TopScores(int k) {
+            this.k = k;
+            this.docs = new int[k];
+            this.scores = new double[k];
+        }
+
+        double threshold() {
+            return size < k ? Double.NEGATIVE_INFINITY : scores[0];
+        }
+
+        // Docs arrive in increasing id order, so a later doc with an equal score ranks below and is rejected
+        void offer(int doc, double score) {
+            if (k == 0) {
+                return;
+            }
+            if (size < k) {
+                docs[size] = doc;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (score > scores[0]) {
+                docs[0] = doc;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        Result result(int matched, int scored) {
+            int[] ids = new int[size];
+            double[] sorted = new double[size];
+            for (int end = size - 1; end >= 0; end--) {
+                ids[end] = docs[0];
+                sorted[end] = scores[0];
+                docs[0] = docs[end];
+                scores[0] = scores[end];
+                size = end;
+                siftDown(0);
+            }
+            return new Result(ids, sorted, matched, scored);
+        }
+
+        // a ranks below b: lower score, or equal score and later product
+        private boolean worse(int a, int b) {
+            return scores[a] < scores[b] || (scores[a] == scores[b] && docs[a] > docs[b]);
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!worse(index, parent)) {
+                    break;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && worse(child + 1, child)) {
+                    child++;
+                }
+                if (!worse(child, index)) {
+                    break;
+                }
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int doc = docs[a];
+            docs[a] = docs[b];
+            docs[b] = doc;
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Presorted permutations of the catalogue, one per ProductOrder, built on
+// first use. A page walks the permutation and keeps the ids that pass the
+// filter, so page 1 of a common sort costs about k / selectivity rows rather
+// than sorting every match.
+//
+// Changes do not re-sort: added or re-priced/re-rated products go to a small
+// sorted pending list that is merged into the walk, their old permutation
+// slot is tombstoned, and the two are folded together in one linear pass when
+// the pending list grows past sqrt(n). Call the change hooks after updating
+// the ProductStore.
+public class SortedOrders {
+    private static final int MIN_PENDING = 1024;
+
+    private final class Order {
+        final ProductOrder order;
+        int[] permutation;
+        final BitSet stale = new BitSet();
+        int[] pending = new int[64];
+        int pendingSize;
+
+        Order(ProductOrder order) {
+            this.order = order;
+            permutation = new int[store.size()];
+            for (int id = 0; id < permutation.length; id++) {
+                permutation[id] = id;
+            }
+            sort(permutation, order);
+        }
+
+        void insert(int id) {
+            if (pendingSize >= Math.max(MIN_PENDING, (int) Math.sqrt(permutation.length))) {
+                fold();
+            }
+            if (pendingSize == pending.length) {
+                pending = Arrays.copyOf(pending, pendingSize * 2);
+            }
+            int position = pendingSize;
+            while (position > 0 && order.compare(store, pending[position - 1], id) > 0) {
+                pending[position] = pending[position - 1];
+                position--;
+            }
+            pending[position] = id;
+            pendingSize++;
+        }
+
+        // The id's sort key changed: drop whichever slot holds it and re-insert with the new key
+        void changed(int id) {
+            boolean wasPending = false;
+            for (int i = 0; i < pendingSize && !wasPending; i++) {
+                if (pending[i] == id) {
+                    System.arraycopy(pending, i + 1, pending, i, pendingSize - i - 1);
+                    pendingSize--;
+                    wasPending = true;
+                }
+            }
+            if (!wasPending) {
+                stale.set(id);
+            }
+            insert(id);
+        }
+
+        private void fold() {
+            int[] merged = new int[permutation.length - stale.cardinality() + pendingSize];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < permutation.length || j < pendingSize) {
+                if (i < permutation.length && stale.get(permutation[i])) {
+                    i++;
+                } else if (j >= pendingSize
+                        || (i < permutation.length && order.compare(store, permutation[i], pending[j]) < 0)) {
+                    merged[count++] = permutation[i++];
+                } else {
+                    merged[count++] = pending[j++];
+                }
+            }
+            permutation = merged;
+            stale.clear();
+            pendingSize = 0;
+        }
+    }
+
+    private final ProductStore store;
+    private final Order[] orders = new Order[ProductOrder.values().length];
+
+    public SortedOrders(ProductStore store) {
+        this.store = store;
+    }
+
+    public void productAdded(int id) {
+        for (Order order : orders) {
+            if (order != null) {
+                order.insert(id);
+            }
+        }
+    }
+
+    public void priceChanged(int id) {
+        changed(id, ProductOrder.PRICE_ASC, ProductOrder.PRICE_DESC);
+    }
+
+    public void ratingChanged(int id) {
+        changed(id, ProductOrder.RATING_ASC, ProductOrder.RATING_DESC);
+    }
+
+    // Ids passing filter (null for the whole catalogue) at [offset, offset + limit) in the given order
+    public Page page(Bitmap filter, ProductOrder order, int offset, int limit) {
+        Order sorted = order(order);
+        int total = filter == null ? store.size() : filter.cardinality();
+        int wanted = (int) Math.min((long) offset + limit, total);
+        int[] result = new int[Math.max(0, wanted - offset)];
+        int seen = 0;
+        int i = 0;
+        int j = 0;
+        int[] permutation = sorted.permutation;
+        while (seen < wanted && (i < permutation.length || j < sorted.pendingSize)) {
+            // Skip tombstones before comparing: a stale slot's key has changed and would misplace the merge
+            if (i < permutation.length && sorted.stale.get(permutation[i])) {
+                i++;
+                continue;
+            }
+            int id;
+            if (j >= sorted.pendingSize
+                    || (i < permutation.length && order.compare(store, permutation[i], sorted.pending[j]) < 0)) {
+                id = permutation[i++];
+            } else {
+                id = sorted.pending[j++];
+            }
+            if (filter == null || filter.get(id)) {
+                if (seen >= offset) {
+                    result[seen - offset] = id;
+                }
+                seen++;
+            }
+        }
+        return new Page(result, offset, limit, total);
+    }
+
+    // Walks the presorted order when the matches are dense enough to fill the page quickly,
+    // otherwise partial-sorts the matches themselves
+    public Page page(int[] matches, ProductOrder order, int offset, int limit) {
+        long k = Math.min((long) offset + limit, matches.length);
+        double walkCost = matches.length == 0 ? 0 : (double) k * store.size() / matches.length;
+        double heapCost = matches.length * (1 + Math.log(k + 1) / Math.log(2));
+        if (walkCost < heapCost) {
+            return page(Bitmap.of(matches), order, offset, limit);
+        }
+        return TopK.page(store, matches, order, offset, limit);
+    }
+
+    private void changed(int id, ProductOrder ascending, ProductOrder descending) {
+        for (ProductOrder order : new ProductOrder[] { ascending, descending }) {
+            Order sorted = orders[order.ordinal()];
+            if (sorted != null) {
+                sorted.changed(id);
+            }
+        }
+    }
+
+    private Order order(ProductOrder order) {
+        Order sorted = orders[order.ordinal()];
+        if (sorted == null) {
+            sorted = new Order(order);
+            orders[order.ordinal()] = sorted;
+        }
+        return sorted;
+    }
+
+    private interface IdComparator {
+        int compare(int a, int b);
+    }
+
+    // Merge sort on primitive ids (Arrays.sort has no int[] + comparator overload). Names are
+    // decoded once up front rather than twice per comparison.
+    private void sort(int[] ids, ProductOrder order) {
+        IdComparator comparator;
+        if (order == ProductOrder.NAME_ASC || order == ProductOrder.NAME_DESC) {
+            String[] names = new String[store.size()];
+            for (int id = 0; id < names.length; id++) {
+                names[id] = store.name(id);
+            }
+            int sign = order.isDescending() ? -1 : 1;
+            comparator = (a, b) -> {
+                int result = sign * String.CASE_INSENSITIVE_ORDER.compare(names[a], names[b]);
+                return result != 0 ? result : Integer.compare(a, b);
+            };
+        } else {
+            comparator = (a, b) -> order.compare(store, a, b);
+        }
+        int[] buffer = new int[ids.length];
+        for (int width = 1; width < ids.length; width *= 2) {
+            for (int from = 0; from < ids.length; from += 2 * width) {
+                int middle = Math.min(from + width, ids.length);
+                int to = Math.min(from + 2 * width, ids.length);
+                int i = from;
+                int j = middle;
+                int out = from;
+                while (i < middle && j < to) {
+                    buffer[out++] = comparator.compare(ids[i], ids[j]) <= 0 ? ids[i++] : ids[j++];
+                }
+                while (i < middle) {
+                    buffer[out++] = ids[i++];
+                }
+                while (j < to) {
+                    buffer[out++] = ids[j++];
+                }
+            }
+            System.arraycopy(buffer, 0, ids, 0, ids.length);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.demo.threads;
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Low-frequency stack sampler. Each tick snapshots RUNNABLE threads and folds
+// their stacks into a call tree of interned frame ids. If a tick costs more
+// than the overhead budget, the sampler stretches its period instead of
+// stealing more CPU.
+class StackSampler {
+    static final class Node {
+        final int frame;
+        long self;
+        long total;
+        private int[] childFrames = new int[2];
+        private Node[] children = new Node[2];
+        private int childCount;
+
+        Node(int frame) {
+            this.frame = frame;
+        }
+
+        Node child(int frameId) {
+            for (int i = 0; i < childCount; i++) {
+                if (childFrames[i] == frameId) {
+                    return children[i];
+                }
+            }
+            if (childCount == children.length) {
+                childFrames = Arrays.copyOf(childFrames, childCount * 2);
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            Node node = new Node(frameId);
+            childFrames[childCount] = frameId;
+            children[childCount++] = node;
+            return node;
+        }
+
+        int childCount() {
+            return childCount;
+        }
+
+        Node childAt(int index) {
+            return children[index];
+        }
+    }
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    // A frame is a method: elements differing only in line number share one id (and one tree node)
+    private final Map<StackTraceElement, Integer> frameIds = new HashMap<>();
+    private final Map<String, Integer> methodIds = new HashMap<>();
+    private final List<String> frameNames = new ArrayList<>();
+    private final int maxDepth;
+    private final double overheadBudget;
+    private Node root;
+    private ScheduledExecutorService executor;
+    private Thread samplerThread;
+    private long periodNanos;
+    private long basePeriodNanos;
+    private long nextDueNanos;
+    private long samples;
+    private long sampleCpuNanos;
+    private long startedNanos;
+
+    StackSampler(int maxDepth, double overheadBudget) {
+        this.maxDepth = maxDepth;
+        this.overheadBudget = overheadBudget;
+        reset();
+    }
+
+    synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    synchronized void start(int hz) {
+        if (executor != null) {
+            return;
+        }
+        basePeriodNanos = TimeUnit.SECONDS.toNanos(1) / hz;
+        periodNanos = basePeriodNanos;
+        nextDueNanos = 0;
+        startedNanos = System.nanoTime();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stack-sampler");
+            thread.setDaemon(true);
+            samplerThread = thread;
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, 0, basePeriodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    synchronized void reset() {
+        root = new Node(-1);
+        frameIds.clear();
+        methodIds.clear();
+        frameNames.clear();
+        samples = 0;
+        sampleCpuNanos = 0;
+        startedNanos = System.nanoTime();
+    }
+
+    synchronized long samples() {
+        return samples;
+    }
+
+    synchronized double effectiveHz() {
+        return periodNanos == 0 ? 0 : 1e9 / periodNanos;
+    }
+
+    // Sampler CPU time as a fraction of one core since start
+    synchronized double overheadPercent() {
+        long elapsed = System.nanoTime() - startedNanos;
+        return elapsed <= 0 ? 0 : sampleCpuNanos * 100.0 / elapsed;
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (now < nextDueNanos) {
+                return;
+            }
+        }
+
+        long cpuBefore = threadBean.getCurrentThreadCpuTime();
+        ThreadInfo[] infos = threadBean.dumpAllThreads(false, false, maxDepth);
+        synchronized (this) {
+            for (ThreadInfo info : infos) {
+                if (info == null || info.getThreadState() != Thread.State.RUNNABLE
+                        || (samplerThread != null && info.getThreadId() == samplerThread.getId())) {
+                    continue;
+                }
+                StackTraceElement[] stack = info.getStackTrace();
+                if (stack.length == 0) {
+                    continue;
+                }
+                Node node = root;
+                node.total++;
+                for (int i = stack.length - 1; i >= 0; i--) {
+                    node = node.child(intern(stack[i]));
+                    node.total++;
+                }
+                node.self++;
+            }
+            samples++;
+
+            long cost = threadBean.getCurrentThreadCpuTime() - cpuBefore;
+            sampleCpuNanos += cost;
+            // Stretch the period until one sample fits in the budget, relax back when it does
+            long needed = (long) (cost / overheadBudget);
+            periodNanos = Math.max(basePeriodNanos, Math.min(needed, periodNanos * 2));
+            nextDueNanos = now + periodNanos - basePeriodNanos / 2;
+        }
+    }
+
+    private int intern(StackTraceElement element) {
+        Integer id = frameIds.get(element);
+        if (id == null) {
+            String name = element.getClassName() + "." + element.getMethodName();
+            id = methodIds.get(name);
+            if (id == null) {
+                id = frameNames.size();
+                methodIds.put(name, id);
+                frameNames.add(name);
+            }
+            frameIds.put(element, id);
+        }
+        return id;
+    }
+
+    synchronized List<Map.Entry<String, Long>> topSelfFrames(int limit) {
+        Map<String, Long> self = new HashMap<>();
+        collectSelf(root, self);
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(self.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return entries.subList(0, Math.min(limit, entries.size()));
+    }
+
+    private void collectSelf(Node node, Map<String, Long> self) {
+        if (node.self > 0 && node.frame >= 0) {
+            self.merge(frameNames.get(node.frame), node.self, Long::sum);
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            collectSelf(node.childAt(i), self);
+        }
+    }
+
+    // Brendan Gregg's collapsed format: frame;frame;frame count
+    synchronized void writeCollapsed(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder path = new StringBuilder();
+            for (int i = 0; i < root.childCount(); i++) {
+                writeCollapsed(root.childAt(i), path, writer);
+            }
+        }
+    }
+
+    private void writeCollapsed(Node node, StringBuilder path, Writer writer) throws IOException {
+        int mark = path.length();
+        if (mark > 0) {
+            path.append(';');
+        }
+        path.append(frameNames.get(node.frame));
+        if (node.self > 0) {
+            writer.append(path).append(' ').append(Long.toString(node.self)).append('\n');
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            writeCollapsed(node.childAt(i), path, writer);
+        }
+        path.setLength(mark);
+    }
+
+    synchronized void writeFlameGraph(Path file) throws IOException {
+        StringBuilder json = new StringBuilder();
+        appendJson(root, json);
+        String html = FLAME_TEMPLATE
+                .replace("/*TITLE*/", "Flame graph - " + samples + " samples, " + new Date())
+                .replace("/*DATA*/", json.toString());
+        Files.write(file, html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void appendJson(Node node, StringBuilder json) {
+        String name = node.frame < 0 ? "all" : frameNames.get(node.frame);
+        json.append("{\"n\":\"").append(name.replace("\\", "\\\\").replace("\"", "\\\"").replace("<", "\\u003c"))
+                .append("\",\"v\":").append(node.total).append(",\"c\":[");
+        for (int i = 0; i < node.childCount(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendJson(node.childAt(i), json);
+        }
+        json.append("]}");
+    }
+
+    private static final String FLAME_TEMPLATE = String.join("\n",
+            "<!DOCTYPE html>",
+            "<html><head><meta charset=\"utf-8\"><title>/*TITLE*/</title>",
+            "<style>",
+            "body{font:12px monospace;margin:8px}",
+            "#g{position:relative;width:100%}",
+            ".f{position:absolute;height:16px;overflow:hidden;white-space:nowrap;box-sizing:border-box;",
+            "border:1px solid #fff;cursor:pointer;padding-left:2px}",
+            "</style></head><body>",
+            "<h3>/*TITLE*/</h3><div>Click a frame to zoom, click the root to reset.</div>",
+            "<div id=\"g\"></div>",
+            "<script>",
+            "var data=/*DATA*/;",
+            "var g=document.getElementById('g');",
+            "function depth(n){var d=0;n.c.forEach(function(c){d=Math.max(d,depth(c));});return d+1;}",
+            "function color(s){var h=0;for(var i=0;i<s.length;i++)h=(h*31+s.charCodeAt(i))|0;",
+            "return 'hsl('+(20+Math.abs(h)%40)+',80%,'+(55+Math.abs(h>>8)%20)+'%)';}",
+            "function draw(focus){g.innerHTML='';var rows=depth(focus);g.style.height=(rows*17)+'px';",
+            "place(focus,0,100,rows-1);}",
+            "function place(n,x,w,row){if(w<0.05)return;var d=document.createElement('div');d.className='f';",
+            "d.style.left=x+'%';d.style.width=w+'%';d.style.top=(row*17)+'px';d.style.background=color(n.n);",
+            "d.textContent=n.n;d.title=n.n+' ('+n.v+' samples)';",
+            "d.onclick=function(){draw(n===data||n===current?data:(current=n));};g.appendChild(d);",
+            "var cx=x;n.c.forEach(function(c){var cw=w*c.v/n.v;place(c,cx,cw,row-1);cx+=cw;});}",
+            "var current=data;draw(data);",
+            "</script></body></html>");
+}
@@ -0,0 +1,266 @@
+package com.example.demo.threads;
+
+import java.io.PrintStream;
+import java.nio.CharBuffer;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+// Full-screen ANSI view of MetricHistory. Each frame is drawn into a back
+// buffer and compared with what the terminal already shows; only runs of
+// changed cells are written, prefixed by a cursor move. While open it also
+// acts as the console alert sink, so transitions land in its alert pane
+// instead of being printed over the frame.
+class TerminalDashboard implements AlertEngine.AlertSink {
+    private static final char[] SPARK = { '▁', '▂', '▃', '▄', '▅', '▆', '▇', '█' };
+    private static final String ESC = "\u001b[";
+    // Rewriting a few unchanged cells is cheaper than another cursor move
+    private static final int MAX_GAP = 4;
+    private static final int ALERT_PANE = 3;
+
+    private final MetricHistory metrics;
+    private final AlertEngine alertEngine;
+    private final LinuxIoCollector ioCollector;
+    private final PrintStream out;
+    private final int width;
+    private final int height;
+    private final char[][] front;
+    private final char[][] back;
+    private final double[] sparkValues;
+    private final StringBuilder output = new StringBuilder(8192);
+    private final SimpleDateFormat clock = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final SimpleDateFormat alertClock = new SimpleDateFormat("HH:mm:ss");
+    private final Deque<String> recentAlerts = new ArrayDeque<>();
+    private long frames;
+    private long bytesWritten;
+    private long fullRedrawBytes;
+    private int lastFrameBytes;
+    private int lastFullRedrawBytes;
+
+    TerminalDashboard(MetricHistory metrics, AlertEngine alertEngine, LinuxIoCollector ioCollector,
+            PrintStream out, int width, int height) {
+        this.metrics = metrics;
+        this.alertEngine = alertEngine;
+        this.ioCollector = ioCollector;
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.front = new char[height][width];
+        this.back = new char[height][width];
+        this.sparkValues = new double[width];
+    }
+
+    static TerminalDashboard forConsole(MetricHistory metrics, AlertEngine alertEngine, LinuxIoCollector ioCollector) {
+        return new TerminalDashboard(metrics, alertEngine, ioCollector, System.out,
+                envInt("COLUMNS", 100), envInt("LINES", 30));
+    }
+
+    synchronized void open() {
+        for (char[] row : front) {
+            Arrays.fill(row, ' ');
+        }
+        frames = 0;
+        bytesWritten = 0;
+        fullRedrawBytes = 0;
+        recentAlerts.clear();
+        out.print(ESC + "?25l" + ESC + "2J" + ESC + "H");
+        out.flush();
+    }
+
+    synchronized void close() {
+        out.print(ESC + (height + 1) + ";1H" + ESC + "?25h");
+        out.println();
+        out.printf("Dashboard closed after %d frames, %.0f bytes/frame (full redraw: %.0f bytes/frame)\n",
+                frames, frames == 0 ? 0.0 : (double) bytesWritten / frames,
+                frames == 0 ? 0.0 : (double) fullRedrawBytes / frames);
+        out.flush();
+    }
+
+    @Override
+    public synchronized void send(AlertEngine.Alert alert) {
+        if (recentAlerts.size() == ALERT_PANE) {
+            recentAlerts.removeFirst();
+        }
+        recentAlerts.addLast(String.format("%s %-8s %s (value %.2f)", alertClock.format(new Date(alert.timestamp)),
+                alert.firing ? "FIRING" : "RESOLVED", alert.rule.name, alert.value));
+    }
+
+    synchronized void refresh() {
+        for (char[] row : back) {
+            Arrays.fill(row, ' ');
+        }
+        draw();
+        flush();
+    }
+
+    private void draw() {
+        int row = 0;
+        put(row, 0, "HARDWARE MONITOR DASHBOARD");
+        String time = clock.format(new Date());
+        put(row++, width - time.length() - 1, time);
+        hline(row++);
+
+        double systemCpu = metrics.latest("cpu_system_usage_percent", Double.NaN);
+        double processCpu = metrics.latest("cpu_process_usage_percent", Double.NaN);
+        put(row, 0, String.format("CPU system  %5.1f%% ", systemCpu));
+        sparkline(row++, 20, width - 21, "cpu_system_usage_percent", 0, 100);
+        put(row, 0, String.format("CPU process %5.1f%% ", processCpu));
+        sparkline(row++, 20, width - 21, "cpu_process_usage_percent", 0, 100);
+        put(row++, 0, String.format("Load average %.2f   Threads live %.0f, peak %.0f",
+                metrics.latest("cpu_load_average", Double.NaN),
+                metrics.latest("jvm_threads_live", Double.NaN),
+                metrics.latest("jvm_threads_peak", Double.NaN)));
+        row++;
+
+        put(row, 0, String.format("Heap        %5.1f%% ", metrics.latest("jvm_heap_usage_percent", Double.NaN)));
+        sparkline(row++, 20, width - 21, "jvm_heap_usage_percent", 0, 100);
+        put(row++, 0, String.format("Heap %s / %s   Physical used %s   Swap used %s",
+                bytes("jvm_heap_used_bytes"), bytes("jvm_heap_max_bytes"),
+                bytes("memory_physical_used_bytes"), bytes("memory_swap_used_bytes")));
+        row++;
+
+        put(row++, 0, String.format("Disk usage (max) %5.1f%%", metrics.latest("disk_max_usage_percent", Double.NaN)));
+        if (ioCollector != null) {
+            for (LinuxIoCollector.DeviceStats dev : ioCollector.devices()) {
+                if (row >= height - 6 - ALERT_PANE) {
+                    break;
+                }
+                put(row++, 2, String.format("%-8s R %7.1f IOPS %9s/s  W %7.1f IOPS %9s/s  lat %6.2fms",
+                        dev.name, dev.readIops, HardwareMonitor.formatBytes((long) dev.readBytesPerSec),
+                        dev.writeIops, HardwareMonitor.formatBytes((long) dev.writeBytesPerSec), dev.avgLatencyMs));
+            }
+            for (LinuxIoCollector.InterfaceStats itf : ioCollector.interfaces()) {
+                if (row >= height - 4 - ALERT_PANE) {
+                    break;
+                }
+                put(row++, 2, String.format("%-8s RX %9s/s %8.1f pkt/s  TX %9s/s %8.1f pkt/s",
+                        itf.name, HardwareMonitor.formatBytes((long) itf.rxBytesPerSec), itf.rxPacketsPerSec,
+                        HardwareMonitor.formatBytes((long) itf.txBytesPerSec), itf.txPacketsPerSec));
+            }
+        }
+        row++;
+
+        StringBuilder firing = new StringBuilder();
+        for (AlertEngine.Rule rule : alertEngine.rules()) {
+            if (rule.isFiring()) {
+                firing.append(firing.length() == 0 ? "" : ", ").append(rule.name);
+            }
+        }
+        int alertRow = Math.min(row, height - 3 - ALERT_PANE);
+        put(alertRow++, 0, "Alerts: " + (firing.length() == 0 ? "none firing" : firing));
+        for (String line : recentAlerts) {
+            put(alertRow++, 2, line);
+        }
+
+        hline(height - 2);
+        put(height - 1, 0, String.format("Press Enter to exit.  Last frame %d bytes (full redraw %d)",
+                lastFrameBytes, lastFullRedrawBytes));
+    }
+
+    private void flush() {
+        output.setLength(0);
+        for (int r = 0; r < height; r++) {
+            char[] want = back[r];
+            char[] have = front[r];
+            int c = 0;
+            while (c < width) {
+                if (want[c] == have[c]) {
+                    c++;
+                    continue;
+                }
+                int start = c;
+                int end = c + 1;
+                int gap = 0;
+                for (int i = c + 1; i < width && gap <= MAX_GAP; i++) {
+                    if (want[i] != have[i]) {
+                        end = i + 1;
+                        gap = 0;
+                    } else {
+                        gap++;
+                    }
+                }
+                output.append(ESC).append(r + 1).append(';').append(start + 1).append('H');
+                output.append(want, start, end - start);
+                System.arraycopy(want, start, have, start, end - start);
+                c = end;
+            }
+        }
+
+        if (output.length() > 0) {
+            out.print(output);
+            out.flush();
+        }
+        // Measured in encoded bytes: the box and sparkline glyphs are 3 bytes each in UTF-8
+        lastFrameBytes = utf8Length(output);
+        bytesWritten += lastFrameBytes;
+        int full = 0;
+        for (int r = 0; r < height; r++) {
+            full += (ESC + (r + 1) + ";1H").length() + utf8Length(CharBuffer.wrap(back[r]));
+        }
+        lastFullRedrawBytes = full;
+        fullRedrawBytes += full;
+        frames++;
+    }
+
+    private static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private void sparkline(int row, int col, int length, String key, double min, double max) {
+        MetricHistory.Series series = metrics.get(key);
+        if (series == null || length <= 0) {
+            return;
+        }
+        int copied = series.copyValues(sparkValues);
+        int n = Math.min(copied, length);
+        int offset = col + length - n;
+        for (int i = 0; i < n; i++) {
+            double v = sparkValues[copied - n + i];
+            int level = Double.isNaN(v) ? 0 : (int) ((v - min) / (max - min) * (SPARK.length - 1));
+            back[row][offset + i] = SPARK[Math.max(0, Math.min(SPARK.length - 1, level))];
+        }
+    }
+
+    private void put(int row, int col, String text) {
+        if (row < 0 || row >= height || col < 0) {
+            return;
+        }
+        int n = Math.min(text.length(), width - col);
+        for (int i = 0; i < n; i++) {
+            back[row][col + i] = text.charAt(i);
+        }
+    }
+
+    private void hline(int row) {
+        if (row >= 0 && row < height) {
+            Arrays.fill(back[row], '─');
+        }
+    }
+
+    private String bytes(String key) {
+        double value = metrics.latest(key, Double.NaN);
+        return Double.isNaN(value) ? "n/a" : HardwareMonitor.formatBytes((long) value);
+    }
+
+    private static int envInt(String name, int defaultValue) {
+        try {
+            String value = System.getenv(name);
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
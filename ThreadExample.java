@@ -1,32 +1,255 @@
 package com.example.demo.threads;
 
-class MyThread extends Thread {
-    private String threadName;
-    
-    MyThread(String name) {
-        this.threadName = name;
-    }
-    
-    @Override
-    public void run() {
-        for (int i = 0; i < 5; i++) {
-            System.out.println(threadName + " - Count: " + i);
-            try {
-                Thread.sleep(1000); // Pause for 1 second
-            } catch (InterruptedException e) {
-                System.out.println(threadName + " interrupted");
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+// Log2-bucketed latency histogram that many threads can record into without locking
+class LatencyHistogram {
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    private final LongAdder count = new LongAdder();
+
+    void record(long nanos) {
+        long value = Math.max(1, nanos);
+        buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value));
+        max.accumulate(value);
+        count.increment();
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    // Upper bound of the bucket holding the given percentile
+    long percentile(double p) {
+        long total = count();
+        long target = (long) Math.ceil(total * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < 64; i++) {
+            seen += buckets.get(i);
+            if (seen >= target && seen > 0) {
+                return Math.min(max(), (2L << i) - 1);
             }
         }
-        System.out.println(threadName + " finished");
+        return max();
     }
 }
 
+enum Workload {
+    CPU, SLEEP, LOCK
+}
+
+// Load generator for exercising HardwareMonitor: N platform or virtual threads
+// running a CPU-bound, sleep-bound or lock-contended loop, reporting throughput
+// and scheduling latency.
+//
+// Run: java com.example.demo.threads.ThreadExample --threads=10000 --virtual --workload=sleep --seconds=10
 public class ThreadExample {
-    public static void main(String[] args) {
-        MyThread thread1 = new MyThread("Thread-1");
-        MyThread thread2 = new MyThread("Thread-2");
-        
-        thread1.start(); // Start thread1
-        thread2.start(); // Start thread2
-    }
-}
\ No newline at end of file
+    private static final long CPU_WORK_NANOS = 50_000;
+    private static final long SLEEP_NANOS = 10_000_000;
+    private static final int MIN_THREADS = 2;
+    private static final int MAX_THREADS = 1_000_000;
+    // Keeps the CPU workload's arithmetic from being optimised away
+    static volatile long blackhole;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = 2;
+        boolean virtual = false;
+        Workload workload = Workload.SLEEP;
+        int seconds = 5;
+        for (String arg : args) {
+            try {
+                if (arg.startsWith("--threads=")) {
+                    threads = Integer.parseInt(arg.substring(10));
+                } else if (arg.equals("--virtual")) {
+                    virtual = true;
+                } else if (arg.equals("--platform")) {
+                    virtual = false;
+                } else if (arg.startsWith("--workload=")) {
+                    workload = Workload.valueOf(arg.substring(11).toUpperCase(Locale.ROOT));
+                } else if (arg.startsWith("--seconds=")) {
+                    seconds = Integer.parseInt(arg.substring(10));
+                } else {
+                    System.err.println("Unknown option " + arg);
+                    printUsage();
+                    return;
+                }
+            } catch (IllegalArgumentException e) {
+                // A non-numeric count (NumberFormatException) or an unknown workload name
+                System.err.println("Invalid value in " + arg);
+                printUsage();
+                return;
+            }
+        }
+
+        // Checked before anything is allocated: the latch, and a thread per count
+        if (threads < MIN_THREADS || threads > MAX_THREADS) {
+            System.err.printf("--threads must be between %,d and %,d, got %,d\n", MIN_THREADS, MAX_THREADS, threads);
+            return;
+        }
+
+        ThreadFactory factory = virtual ? virtualThreadFactory() : Thread::new;
+        if (factory == null) {
+            return;
+        }
+        run(factory, virtual ? "virtual" : "platform", threads, workload, seconds);
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: ThreadExample [--threads=N] [--virtual|--platform]"
+                + " [--workload=cpu|sleep|lock] [--seconds=S]");
+    }
+
+    static void run(ThreadFactory factory, String kind, int threads, Workload workload, int seconds)
+            throws InterruptedException {
+        System.out.printf("Starting %,d %s threads, %s workload, %d s\n", threads, kind, workload, seconds);
+
+        LatencyHistogram startup = new LatencyHistogram();
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder operations = new LongAdder();
+        ReentrantLock lock = new ReentrantLock();
+        CountDownLatch finished = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        long spawnStart = System.nanoTime();
+        int started = 0;
+        try {
+            for (; started < threads; started++) {
+                long submitted = System.nanoTime();
+                Thread thread = factory.newThread(() -> {
+                    startup.record(System.nanoTime() - submitted);
+                    try {
+                        work(workload, deadline, lock, latency, operations);
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (OutOfMemoryError e) {
+            // Platform threads run out of native memory long before a million
+            System.err.printf("Could only start %,d threads: %s\n", started, e.getMessage());
+            for (int i = started; i < threads; i++) {
+                finished.countDown();
+            }
+        }
+        double spawnMillis = (System.nanoTime() - spawnStart) / 1e6;
+        System.out.printf("Started %,d threads in %.1f ms (%,.0f threads/s)\n",
+                started, spawnMillis, started / Math.max(spawnMillis / 1000, 1e-9));
+
+        // Live platform threads as HardwareMonitor's ThreadMXBean sees them; virtual threads are not counted there
+        long lastOps = 0;
+        while (!finished.await(1, TimeUnit.SECONDS)) {
+            long ops = operations.sum();
+            System.out.printf("  %,12d ops/s   JVM live threads: %,d\n", ops - lastOps,
+                    ManagementFactory.getThreadMXBean().getThreadCount());
+            lastOps = ops;
+        }
+        double elapsedSeconds = (System.nanoTime() - spawnStart) / 1e9;
+
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println("LOAD GENERATOR RESULTS");
+        System.out.println("=".repeat(40));
+        System.out.printf("Threads: %,d %s, workload: %s\n", started, kind, workload);
+        System.out.printf("Throughput: %,.0f ops/s (%,d ops in %.1f s)\n", operations.sum() / elapsedSeconds,
+                operations.sum(), elapsedSeconds);
+        printLatency("Start latency", startup);
+        printLatency(latencyLabel(workload), latency);
+    }
+
+    private static void work(Workload workload, long deadline, Lock lock, LatencyHistogram latency,
+            LongAdder operations) {
+        long sink = 0;
+        while (System.nanoTime() < deadline) {
+            switch (workload) {
+                case CPU:
+                    sink += spin(CPU_WORK_NANOS);
+                    // Time off-CPU after giving way is the wait for a carrier or core
+                    long yielded = System.nanoTime();
+                    Thread.yield();
+                    latency.record(System.nanoTime() - yielded);
+                    break;
+                case SLEEP:
+                    long wake = System.nanoTime() + SLEEP_NANOS;
+                    LockSupport.parkNanos(SLEEP_NANOS);
+                    latency.record(System.nanoTime() - wake);
+                    break;
+                case LOCK:
+                    // ReentrantLock rather than synchronized, which pins a virtual thread to its carrier
+                    long requested = System.nanoTime();
+                    lock.lock();
+                    try {
+                        latency.record(System.nanoTime() - requested);
+                        sink += spin(1_000);
+                    } finally {
+                        lock.unlock();
+                    }
+                    break;
+            }
+            operations.increment();
+        }
+        blackhole = sink;
+    }
+
+    private static long spin(long nanos) {
+        long end = System.nanoTime() + nanos;
+        long x = 0;
+        while (System.nanoTime() < end) {
+            x = x * 31 + 17;
+        }
+        return x;
+    }
+
+    private static String latencyLabel(Workload workload) {
+        switch (workload) {
+            case CPU:
+                return "Yield return";
+            case SLEEP:
+                return "Wake-up lateness";
+            default:
+                return "Lock wait";
+        }
+    }
+
+    private static void printLatency(String label, LatencyHistogram histogram) {
+        System.out.printf("%-17s p50 %10s  p99 %10s  p99.9 %10s  max %10s  (%,d samples)\n", label + ":",
+                formatNanos(histogram.percentile(50)), formatNanos(histogram.percentile(99)),
+                formatNanos(histogram.percentile(99.9)), formatNanos(histogram.max()), histogram.count());
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + " ns";
+        } else if (nanos < 10_000_000) {
+            return String.format("%.1f us", nanos / 1e3);
+        }
+        return String.format("%.1f ms", nanos / 1e6);
+    }
+
+    // Thread.ofVirtual().factory() through reflection so the class still runs on Java 17.
+    // Prints why and returns null when virtual threads cannot be used.
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (InvocationTargetException e) {
+            // The API exists but refused, e.g. UnsupportedOperationException on Java 19/20 without --enable-preview
+            System.err.println("Virtual threads are not available on " + Runtime.version() + ": " + e.getCause());
+            return null;
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads need Java 21 or later; running on " + Runtime.version());
+            return null;
+        }
+    }
+}
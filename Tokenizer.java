@@ -0,0 +1,31 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Splits product text into lower-case alphanumeric terms. Every index in this
+// package tokenizes through here so that a name indexed by one matches a query
+// parsed by another.
+public final class Tokenizer {
+    private Tokenizer() {
+    }
+
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
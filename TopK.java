@@ -0,0 +1,71 @@
+package com.example.demo.searchsystem.index;
+
+import java.util.Arrays;
+
+// Partial sort for paginated results: keeps only the best offset + limit ids
+// in a bounded heap whose root is the worst of them, so a page of 20 out of
+// several hundred thousand matches costs O(n log k) instead of a full sort.
+public final class TopK {
+    private TopK() {
+    }
+
+    public static Page page(ProductStore store, int[] matches, ProductOrder order, int offset, int limit) {
+        int k = (int) Math.min((long) offset + limit, matches.length);
+        if (offset >= k) {
+            return new Page(new int[0], offset, limit, matches.length);
+        }
+        int[] heap = new int[k];
+        int size = 0;
+        for (int id : matches) {
+            if (size < k) {
+                heap[size] = id;
+                siftUp(store, order, heap, size++);
+            } else if (order.compare(store, id, heap[0]) < 0) {
+                heap[0] = id;
+                siftDown(store, order, heap, size);
+            }
+        }
+        // Pop worst-first into the tail so the array ends up in order
+        for (int end = size - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            heap[end] = worst;
+            siftDown(store, order, heap, end);
+        }
+        return new Page(Arrays.copyOfRange(heap, offset, k), offset, limit, matches.length);
+    }
+
+    // Max-heap by order: a parent never comes before its children
+    private static void siftUp(ProductStore store, ProductOrder order, int[] heap, int index) {
+        int id = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (order.compare(store, heap[parent], id) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = id;
+    }
+
+    private static void siftDown(ProductStore store, ProductOrder order, int[] heap, int size) {
+        int index = 0;
+        int id = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && order.compare(store, heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (order.compare(store, heap[child], id) <= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = id;
+    }
+}